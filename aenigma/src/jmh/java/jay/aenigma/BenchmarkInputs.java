@@ -0,0 +1,237 @@
+package jay.aenigma;
+
+import jay.aenigma.ckii.CkiiFolder;
+import jay.aenigma.ckii.NamingType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Inputs of the benchmarks: the contents of files of each {@link GameFolder}, generated to resemble those of vanilla
+ * Crusader Kings II, i.e. with the same nesting, comments, dates, numbers and quoted strings. <br/>
+ * If the system property {@value #GAME_PROPERTY} names the install folder of the game, e.g. by passing
+ * -jvmArgs -Daenigma.jmh.game=&lt;folder&gt; to JMH, the actual files of the game are used instead.
+ */
+public final class BenchmarkInputs{
+	
+	/** the system property naming the install folder of the game to read inputs from*/
+	public static final String GAME_PROPERTY = "aenigma.jmh.game";
+	/** the size of the inputs of the benchmarks of single files, roughly that of a large vanilla file*/
+	public static final int FILE_SIZE = 256 * 1024;
+	
+	private static final String[] WORDS = {"brave", "craven", "zealous", "cynical", "kind", "cruel", "just",
+			"arbitrary", "norse", "saxon", "frankish", "greek", "catholic", "orthodox", "sunni", "tengri", "castle",
+			"temple", "city"};
+	
+	/**
+	 * Counts the megabytes of input processed, which JMH reports per second, i.e. as MB/s,
+	 * next to the primary result of each benchmark that uses it.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Megabytes{
+		public double megabytes;
+		
+		@Setup(Level.Iteration)
+		public void reset(){
+			megabytes = 0;
+		}
+		
+		/**Records that the given number of bytes were processed.
+		 * @param bytes the number of bytes
+		 */
+		public void add(int bytes){
+			megabytes += bytes / 1_000_000.0;
+		}
+	}
+	
+	private BenchmarkInputs(){
+	}
+	
+	/**Retrieves the first {@link CkiiFolder} of the given {@link NamingType}.
+	 * @param namingType the NamingType
+	 * @return the CkiiFolder
+	 */
+	public static CkiiFolder folderOf(NamingType namingType){
+		for(CkiiFolder folder : CkiiFolder.values()){
+			if(folder.getNamingType() == namingType && folder != CkiiFolder.LOCALISATION)
+				return folder;
+		}
+		throw new IllegalArgumentException(namingType.name());
+	}
+	
+	/**Retrieves the contents of a file of the given {@link GameFolder} of about the given size: the concatenated files
+	 * of the game if {@value #GAME_PROPERTY} is set, or generated ones otherwise.
+	 * @param gameFolder the GameFolder
+	 * @param size the least size of the contents in bytes
+	 * @param seed the seed of the generated contents
+	 * @return the contents, encoded in the {@link Charset} of the GameFolder
+	 */
+	public static byte[] contents(GameFolder gameFolder, int size, long seed){
+		String game = System.getProperty(GAME_PROPERTY);
+		if(game != null && !game.isEmpty())
+			return read(Paths.get(game).resolve(gameFolder.getPath()), gameFolder, size);
+		return generate(gameFolder, size, new Random(seed)).getBytes(gameFolder.getCharset());
+	}
+	
+	private static byte[] read(Path folder, GameFolder gameFolder, int size){
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+		try(Stream<Path> paths = Files.list(folder)){
+			List<Path> files = paths
+					.filter(path -> gameFolder.getFileNameRegex().matcher(path.getFileName().toString()).matches())
+					.sorted()
+					.collect(Collectors.toList());
+			for(Path file : files){
+				if(bytes.size() >= size)
+					break;
+				bytes.write(Files.readAllBytes(file));
+				bytes.write('\n');
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**Generates the contents of a file of the given {@link GameFolder}, resembling those of vanilla.
+	 * @param gameFolder the GameFolder
+	 * @param size the least length of the contents
+	 * @param random the source of the names and values
+	 * @return the contents
+	 */
+	public static String generate(GameFolder gameFolder, int size, Random random){
+		StringBuilder text = new StringBuilder(size + 1024);
+		if(gameFolder == CkiiFolder.LOCALISATION){
+			text.append("#CODE;ENGLISH;FRENCH;GERMAN;;SPANISH;;;;;;;;;x\n");
+			for(int i = 0; text.length() < size; i++){
+				String word = word(random);
+				text.append(word.toUpperCase()).append('_').append(i)
+						.append(";The ").append(word).append(" of [Root.GetName];")
+						.append("Le ").append(word).append(";Der ").append(word).append(";;El ").append(word)
+						.append(";;;;;;;;;x\n");
+			}
+			return text.toString();
+		}
+		String idField = gameFolder.getIdField();
+		for(int i = 0; text.length() < size; i++){
+			switch(gameFolder.getNamingType()){
+				case TOP_LEVEL:
+					text.append("# ").append(word(random)).append('\n');
+					text.append(word(random)).append('_').append(i).append(" = {\n");
+					appendBody(text, random, 1);
+					text.append("}\n\n");
+					break;
+				case SECOND_LEVEL:
+					text.append(word(random)).append("_group_").append(i).append(" = {\n");
+					text.append("\tgraphical_cultures = { westerngfx occitangfx }\n");
+					for(int j = 0; j < 4; j++){
+						text.append('\t').append(word(random)).append('_').append(i).append('_').append(j)
+								.append(" = {\n");
+						appendBody(text, random, 2);
+						text.append("\t}\n");
+					}
+					text.append("}\n\n");
+					break;
+				case PREFIX_ANY_LEVEL:
+					appendTitle(text, random, "e_" + word(random) + i, 0);
+					break;
+				case ID_FIELD:
+					if(i == 0)
+						text.append("namespace = BM\n\n");
+					text.append("# ").append(word(random)).append(" event\n");
+					text.append("character_event = {\n\t").append(idField).append(" = BM.").append(i).append('\n');
+					text.append("\tdesc = \"EVTDESC_BM_").append(i).append("\"\n\tpicture = GFX_evt_")
+							.append(word(random)).append("\n\tis_triggered_only = yes\n");
+					appendBody(text, random, 1);
+					text.append("\toption = {\n\t\tname = \"EVTOPTA_BM_").append(i).append("\"\n");
+					appendBody(text, random, 2);
+					text.append("\t}\n}\n\n");
+					break;
+				case SECOND_LEVEL_ID_FIELD:
+					if(i == 0)
+						text.append("spriteTypes = {\n");
+					text.append("\tspriteType = {\n\t\t").append(idField).append(" = \"GFX_").append(word(random))
+							.append('_').append(i).append("\"\n\t\ttexturefile = \"gfx/interface/").append(word(random))
+							.append(".dds\"\n\t\tnoOfFrames = ").append(1 + random.nextInt(4))
+							.append("\n\t\tnorefcount = yes\n\t}\n");
+					break;
+				case ANY_LEVEL_ID_FIELD:
+					text.append(idField).append(" = \"War of the ").append(word(random)).append(' ').append(i)
+							.append("\"\n");
+					text.append("casus_belli = {\n\tactor = ").append(random.nextInt(300000))
+							.append("\n\trecipient = ").append(random.nextInt(300000))
+							.append("\n\tcasus_belli = claim\n\tlanded_title = k_").append(word(random))
+							.append("\n\tdate = ").append(date(random)).append("\n}\n");
+					text.append(date(random)).append(" = {\n\tadd_attacker = ").append(random.nextInt(300000))
+							.append("\n\tadd_defender = ").append(random.nextInt(300000)).append("\n}\n\n");
+					break;
+			}
+		}
+		if(gameFolder.getNamingType() == NamingType.SECOND_LEVEL_ID_FIELD)
+			text.append("}\n");
+		return text.toString();
+	}
+	
+	private static void appendBody(StringBuilder text, Random random, int depth){
+		String indent = indent(depth);
+		text.append(indent).append("potential = {\n")
+				.append(indent).append("\tage >= ").append(16 + random.nextInt(10)).append('\n')
+				.append(indent).append("\tNOT = { trait = ").append(word(random)).append(" }\n")
+				.append(indent).append("\tOR = {\n")
+				.append(indent).append("\t\treligion_group = ").append(word(random)).append('\n')
+				.append(indent).append("\t\thas_global_flag = flag_").append(word(random)).append(" # since ")
+				.append(date(random)).append('\n')
+				.append(indent).append("\t}\n")
+				.append(indent).append("}\n");
+		text.append(indent).append("opposites = { ").append(word(random)).append(' ').append(word(random))
+				.append(" }\n");
+		text.append(indent).append("martial = ").append(random.nextInt(7) - 3).append('\n');
+		text.append(indent).append("monthly_character_prestige = ").append(random.nextInt(100) / 100.0).append('\n');
+		text.append(indent).append("ai_rationality = ").append(random.nextInt(61) - 30).append('\n');
+		text.append(indent).append("customizer = ").append(random.nextBoolean() ? "yes" : "no").append('\n');
+		text.append(indent).append("male_insult = \"INSULT_").append(word(random).toUpperCase()).append("\"\n");
+	}
+	
+	private static void appendTitle(StringBuilder text, Random random, String title, int depth){
+		String indent = indent(depth);
+		text.append(indent).append(title).append(" = {\n");
+		text.append(indent).append("\tcolor = { ").append(random.nextInt(256)).append(' ').append(random.nextInt(256))
+				.append(' ').append(random.nextInt(256)).append(" }\n");
+		text.append(indent).append("\tcapital = ").append(random.nextInt(1500)).append(" # ").append(word(random))
+				.append('\n');
+		text.append(indent).append('\t').append(word(random)).append(" = \"").append(word(random)).append("\"\n");
+		if(depth < 4){
+			String prefix = "kdcb".substring(depth, depth + 1);
+			for(int i = 0; i < 3; i++){
+				appendTitle(text, random, prefix + "_" + word(random) + "_" + title.substring(2) + "_" + i, depth + 1);
+			}
+		}
+		text.append(indent).append("}\n");
+	}
+	
+	private static String indent(int depth){
+		return "\t\t\t\t\t".substring(0, depth);
+	}
+	
+	private static String word(Random random){
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+	
+	private static String date(Random random){
+		return (769 + random.nextInt(700)) + "." + (1 + random.nextInt(12)) + "." + (1 + random.nextInt(28));
+	}
+}
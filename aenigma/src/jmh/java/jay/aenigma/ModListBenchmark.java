@@ -0,0 +1,192 @@
+package jay.aenigma;
+
+import jay.aenigma.ckii.CkiiFolder;
+import jay.aenigma.ckii.NamingType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of checking a {@link ModList} for conflicts, over a generated vanilla folder and {@link #MODS} Mods
+ * with about the given number of {@link Definition}s. Some Mods depend on others, override files of vanilla, and
+ * redefine names of vanilla in files of other names, so that all kinds of shadowing and conflicts occur. <br/>
+ * {@link #conflictCheck(Definitions)} includes parsing all files, while {@link #analysis(Definitions)} shares the
+ * parse results of a previous check through a {@link ContentIndex}, as a {@link ModListBatch} does, so that it only
+ * measures resolving the dependencies, mapping files and Definitions, computing their shadowing and finding conflicts.
+ * {@link #shadowing(Definitions)} and {@link #grouping(Definitions)} measure two of those steps on their own, over the
+ * {@link DefinitionTable} of a ModList that was checked beforehand. All should scale linearly with the number of
+ * Definitions, i.e. their definitions/s should stay about the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ModListBenchmark{
+	
+	static final int MODS = 20;
+	private static final int DEFINITIONS_PER_FILE = 100;
+	private static final CkiiFolder[] FOLDERS = {CkiiFolder.TRAITS, CkiiFolder.CULTURES, CkiiFolder.EVENTS,
+			CkiiFolder.DECISIONS};
+	
+	// the number of Definitions to generate, roughly: each Mod has at least a file of its own per folder
+	@Param({"10000", "100000"})
+	public int definitions;
+	
+	// the number of Definitions generated
+	private int total;
+	private Path root;
+	private Path settingsFile;
+	private ContentIndex contents;
+	// checked once, and kept open for the benchmarks of single steps
+	private ModList checkedModList;
+	
+	/**
+	 * Counts the {@link Definition}s checked, which JMH reports per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Definitions{
+		public long definitions;
+		
+		@Setup(Level.Iteration)
+		public void reset(){
+			definitions = 0;
+		}
+	}
+	
+	@Setup
+	public void setUp() throws IOException{
+		GlobalState.game = Game.CK2;
+		GlobalState.useParseCache = false;
+		total = 0;
+		root = Files.createTempDirectory("aenigma-jmh");
+		GlobalState.docsFolder = root.resolve("docs");
+		GlobalState.installRoot = root.resolve("install");
+		Path userDataFolder = GlobalState.game.getUserDataFolder(GlobalState.docsFolder);
+		Path vanilla = GlobalState.game.getGameDataFolder(GlobalState.installRoot);
+		Files.createDirectories(vanilla);
+		Files.write(vanilla.resolve(GlobalState.game.getExecutable()), new byte[0]);
+		Files.createDirectories(userDataFolder.resolve("mod"));
+		
+		// half of the Definitions are vanilla, the other half are spread across the Mods
+		int vanillaFiles = Math.max(1, definitions / 2 / FOLDERS.length / DEFINITIONS_PER_FILE);
+		int modFiles = Math.max(1, definitions / 2 / MODS / FOLDERS.length / DEFINITIONS_PER_FILE);
+		for(CkiiFolder folder : FOLDERS){
+			for(int i = 0; i < vanillaFiles; i++){
+				writeFile(vanilla, folder, "00_" + i, "v" + i, 0);
+			}
+		}
+		StringBuilder settings = new StringBuilder("last_mods = {\n");
+		for(int m = 0; m < MODS; m++){
+			String dependencies = m % 3 != 0 ? "\"Mod " + (m - 1) + "\"" : "";
+			write(userDataFolder.resolve("mod/m" + m + ".mod"),
+					"name = \"Mod " + m + "\"\npath = \"mod/m" + m + "\"\ndependencies = { " + dependencies + " }\n");
+			settings.append("\t\"mod/m").append(m).append(".mod\"\n");
+			Path mod = userDataFolder.resolve("mod/m" + m);
+			for(CkiiFolder folder : FOLDERS){
+				// overrides a file of vanilla, shadowing its Definitions
+				int overridden = m % vanillaFiles;
+				writeFile(mod, folder, "00_" + overridden, "v" + overridden, m);
+				// every other file of its own redefines the names of a file of vanilla
+				for(int i = 0; i < modFiles; i++){
+					String prefix = i % 2 == 0 ? "v" + (i + m) % vanillaFiles : "m" + m + "_" + i;
+					writeFile(mod, folder, "m" + m + "_" + i, prefix, m);
+				}
+			}
+		}
+		write(GlobalState.game.getSettingsFile(GlobalState.docsFolder), settings.append("}\n"));
+		settingsFile = GlobalState.game.getSettingsFile(GlobalState.docsFolder);
+		
+		// the ContentIndex keeps the ids of the Names found, which must outlive each ModList
+		GlobalState.symbols.openSession();
+		contents = new ContentIndex();
+		try(ModList modList = new ModList(settingsFile, contents, null)){
+			modList.runConflictCheck();
+		}
+		checkedModList = new ModList(settingsFile, contents, null);
+		checkedModList.runConflictCheck();
+	}
+	
+	private void writeFile(Path root, CkiiFolder folder, String file, String prefix, int variant) throws IOException{
+		StringBuilder text = new StringBuilder(DEFINITIONS_PER_FILE * 64);
+		for(int i = 0; i < DEFINITIONS_PER_FILE; i++){
+			String name = folder.name().toLowerCase() + "_" + prefix + "_" + i;
+			switch(folder.getNamingType()){
+				case SECOND_LEVEL:
+					if(i % 10 == 0)
+						text.append(i > 0 ? "}\n" : "").append("group_").append(prefix).append('_').append(i)
+								.append(" = {\n");
+					text.append('\t').append(name).append(" = {\n\t\tcolor = { 0.5 0.2 0.").append(variant)
+							.append(" }\n\t\tmale_names = { Adam Bertram Conrad }\n\t}\n");
+					break;
+				case ID_FIELD:
+					text.append("character_event = {\n\tid = ").append(name)
+							.append("\n\tdesc = \"EVTDESC\"\n\tis_triggered_only = yes")
+							.append("\n\toption = { name = OK prestige = ").append(variant).append(" }\n}\n");
+					break;
+				default:
+					text.append(name).append(" = {\n\tpotential = { age >= 16 }\n\tmartial = ").append(variant)
+							.append("\n}\n");
+					break;
+			}
+		}
+		if(folder.getNamingType() == NamingType.SECOND_LEVEL)
+			text.append("}\n");
+		Path path = root.resolve(folder.getPath()).resolve(file + ".txt");
+		Files.createDirectories(path.getParent());
+		write(path, text);
+		total += DEFINITIONS_PER_FILE;
+	}
+	
+	private static void write(Path path, CharSequence text) throws IOException{
+		Files.write(path, text.toString().getBytes(StandardCharsets.ISO_8859_1));
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException{
+		checkedModList.close();
+		GlobalState.symbols.closeSession();
+		try(Stream<Path> paths = Files.walk(root)){
+			for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator){
+				Files.delete(path);
+			}
+		}
+	}
+	
+	@Benchmark
+	public List<Alert> conflictCheck(Definitions counter) throws IOException{
+		try(ModList modList = new ModList(settingsFile)){
+			counter.definitions += total;
+			return modList.runConflictCheck();
+		}
+	}
+	
+	@Benchmark
+	public List<Alert> analysis(Definitions counter) throws IOException{
+		try(ModList modList = new ModList(settingsFile, contents, null)){
+			counter.definitions += total;
+			return modList.runConflictCheck();
+		}
+	}
+	
+	@Benchmark
+	public int shadowing(Definitions counter){
+		counter.definitions += total;
+		return checkedModList.shadowAllDefinitions();
+	}
+	
+	@Benchmark
+	public int grouping(Definitions counter){
+		counter.definitions += total;
+		return checkedModList.groupAllDefinitions();
+	}
+}
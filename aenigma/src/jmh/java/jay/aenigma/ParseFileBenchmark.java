@@ -0,0 +1,72 @@
+package jay.aenigma;
+
+import jay.aenigma.ckii.CkiiFolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of parsing a single file of a {@link Mod}, i.e. reading it and extracting its {@link Definition}s as by
+ * {@link Mod.FileTask#call()}, for a {@link GameFolder} of each {@link jay.aenigma.ckii.NamingType}, and for
+ * localisation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseFileBenchmark{
+	
+	// TOP_LEVEL, SECOND_LEVEL, PREFIX_ANY_LEVEL, ID_FIELD, SECOND_LEVEL_ID_FIELD, ANY_LEVEL_ID_FIELD and localisation
+	@Param({"TRAITS", "CULTURES", "LANDED_TITLES", "EVENTS", "INTERFACE", "WARS", "LOCALISATION"})
+	public String folder;
+	
+	private Path root;
+	private Path file;
+	private GameFolder gameFolder;
+	private Mod.FileTask task;
+	private int size;
+	
+	@Setup
+	public void setUp() throws IOException{
+		GlobalState.game = Game.CK2;
+		gameFolder = CkiiFolder.valueOf(folder);
+		String extension = gameFolder == CkiiFolder.LOCALISATION ? ".csv"
+				: gameFolder == CkiiFolder.INTERFACE ? ".gfx" : ".txt";
+		root = Files.createTempDirectory("aenigma-jmh");
+		file = root.resolve(gameFolder.getPath()).resolve("benchmark" + extension);
+		Files.createDirectories(file.getParent());
+		byte[] contents = BenchmarkInputs.contents(gameFolder, BenchmarkInputs.FILE_SIZE, 1);
+		Files.write(file, contents);
+		size = contents.length;
+	}
+	
+	// a fresh Mod for each file, since the Mod keeps every ModFile it parsed; takes far less time than parsing it
+	@Setup(Level.Invocation)
+	public void setUpTask() throws IOException{
+		Mod mod = new Mod("benchmark", root, false, List.of());
+		task = mod.new FileTask(file, gameFolder, null, null);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException{
+		try(Stream<Path> paths = Files.walk(root)){
+			for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator){
+				Files.delete(path);
+			}
+		}
+	}
+	
+	@Benchmark
+	public List<Alert> parseFile(BenchmarkInputs.Megabytes megabytes){
+		megabytes.add(size);
+		return task.call();
+	}
+}
@@ -0,0 +1,45 @@
+package jay.aenigma.ckii;
+
+import jay.aenigma.BenchmarkInputs;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link TreeNode#computeEditMapping(TreeNode)}, which compares a file or a single definition to a
+ * modified version of it, e.g. a file of vanilla to the one overriding it, for inputs of the given size in characters.
+ * The modified version changes some values, renames some keys and adds some statements, as mods tend to do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeNodeBenchmark{
+	
+	// a single definition, a few, and a small file
+	@Param({"500", "2000", "8000"})
+	public int size;
+	
+	private TreeNode master;
+	private TreeNode modified;
+	
+	@Setup
+	public void setUp(){
+		String text = BenchmarkInputs.generate(CkiiFolder.TRAITS, size, new Random(1));
+		String modifiedText = text
+				.replace("customizer = no", "customizer = yes")
+				.replace("ai_rationality", "ai_honor")
+				.replace("male_insult", "birth = 50\n\tmale_insult");
+		master = TreeNode.valueOf(text);
+		modified = TreeNode.valueOf(modifiedText);
+	}
+	
+	@Benchmark
+	public TreeNode computeEditMapping(){
+		master.computeEditMapping(modified);
+		return master;
+	}
+}
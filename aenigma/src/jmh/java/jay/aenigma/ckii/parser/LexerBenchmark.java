@@ -0,0 +1,62 @@
+package jay.aenigma.ckii.parser;
+
+import jay.aenigma.BenchmarkInputs;
+import jay.aenigma.GameFolder;
+import jay.aenigma.ckii.CkiiFolder;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of tokenizing script files with the ANTLR-generated {@link CkiiLexer} and with the hand-written
+ * {@link CkiiTokenizer}, which produce the same tokens.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark{
+	
+	@Param({"TRAITS", "CULTURES", "LANDED_TITLES", "EVENTS"})
+	public String folder;
+	
+	private GameFolder gameFolder;
+	private ByteBuffer bytes;
+	private CkiiLexer lexer;
+	private CkiiTokenizer tokenizer;
+	
+	@Setup
+	public void setUp(){
+		gameFolder = CkiiFolder.valueOf(folder);
+		bytes = ByteBuffer.wrap(BenchmarkInputs.contents(gameFolder, BenchmarkInputs.FILE_SIZE, 1));
+		lexer = new CkiiLexer(ByteCharStream.of(bytes, gameFolder.getCharset(), folder));
+		lexer.removeErrorListeners();
+		tokenizer = new CkiiTokenizer(gameFolder.getCharset());
+	}
+	
+	@Benchmark
+	public int ckiiLexer(BenchmarkInputs.Megabytes megabytes){
+		lexer.setInputStream(ByteCharStream.of(bytes.duplicate(), gameFolder.getCharset(), folder));
+		int tokens = 0;
+		while(lexer.nextToken().getType() != Token.EOF){
+			tokens++;
+		}
+		megabytes.add(bytes.remaining());
+		return tokens;
+	}
+	
+	@Benchmark
+	public int ckiiTokenizer(BenchmarkInputs.Megabytes megabytes){
+		tokenizer.reset(bytes);
+		int tokens = 0;
+		while(tokenizer.nextToken() != Token.EOF){
+			tokens++;
+		}
+		megabytes.add(bytes.remaining());
+		return tokens;
+	}
+}
@@ -0,0 +1,87 @@
+package jay.aenigma.ckii.parser;
+
+import jay.aenigma.BenchmarkInputs;
+import jay.aenigma.ExtractionPlan;
+import jay.aenigma.GameFolder;
+import jay.aenigma.ckii.NamingType;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of finding the names of the {@link jay.aenigma.Definition}s in the parse tree of a script file,
+ * for each {@link NamingType}: with the name visitor of that NamingType, and with a {@link ScriptTreeWalker}
+ * reporting to the {@link ExtractionPlan} of the {@link GameFolder}, as done for files with syntax errors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NameVisitorBenchmark{
+	
+	@Param({"TOP_LEVEL", "SECOND_LEVEL", "PREFIX_ANY_LEVEL", "ID_FIELD", "SECOND_LEVEL_ID_FIELD", "ANY_LEVEL_ID_FIELD"})
+	public String namingType;
+	
+	private GameFolder gameFolder;
+	private int size;
+	private CkiiParser.UnitContext unit;
+	private int definitions;
+	private final ExtractionPlan.DefinitionSink sink = (name, mergeBehaviour) -> definitions++;
+	
+	@Setup
+	public void setUp(){
+		gameFolder = BenchmarkInputs.folderOf(NamingType.valueOf(namingType));
+		ByteBuffer bytes = ByteBuffer.wrap(BenchmarkInputs.contents(gameFolder, BenchmarkInputs.FILE_SIZE, 1));
+		size = bytes.remaining();
+		CkiiParser parser = new CkiiParser(new CommonTokenStream(
+				new CkiiTokenSource(bytes, gameFolder.getCharset(), namingType, null)));
+		parser.removeErrorListeners();
+		unit = TwoStageParser.parseUnit(parser);
+	}
+	
+	@Benchmark
+	public List<String> nameVisitor(BenchmarkInputs.Megabytes megabytes){
+		CkiiVisitor<List<String>> visitor;
+		switch(gameFolder.getNamingType()){
+			case TOP_LEVEL:
+				visitor = new TopLevelNameVisitor();
+				break;
+			case SECOND_LEVEL:
+				visitor = new SecondLevelNameVisitor();
+				break;
+			case PREFIX_ANY_LEVEL:
+				visitor = new TitleNameVisitor();
+				break;
+			case ID_FIELD:
+				TopLevelIdFieldNameVisitor topLevelIdFieldNameVisitor = new TopLevelIdFieldNameVisitor();
+				topLevelIdFieldNameVisitor.target = gameFolder.getIdField();
+				visitor = topLevelIdFieldNameVisitor;
+				break;
+			case SECOND_LEVEL_ID_FIELD:
+				SecondLevelIdFieldNameVisitor secondLevelIdFieldNameVisitor = new SecondLevelIdFieldNameVisitor();
+				secondLevelIdFieldNameVisitor.target = gameFolder.getIdField();
+				visitor = secondLevelIdFieldNameVisitor;
+				break;
+			default:
+				AnyLevelIdFieldNameVisitor anyLevelIdFieldNameVisitor = new AnyLevelIdFieldNameVisitor();
+				anyLevelIdFieldNameVisitor.target = gameFolder.getIdField();
+				visitor = anyLevelIdFieldNameVisitor;
+				break;
+		}
+		megabytes.add(size);
+		return unit.accept(visitor);
+	}
+	
+	@Benchmark
+	public int treeWalker(BenchmarkInputs.Megabytes megabytes){
+		definitions = 0;
+		unit.accept(new ScriptTreeWalker(gameFolder.getExtractionPlan().newDefinitionHandler(sink)));
+		megabytes.add(size);
+		return definitions;
+	}
+}
@@ -0,0 +1,78 @@
+package jay.aenigma.ckii.parser;
+
+import jay.aenigma.BenchmarkInputs;
+import jay.aenigma.ExtractionPlan;
+import jay.aenigma.GameFolder;
+import jay.aenigma.ckii.CkiiFolder;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of parsing script files: with {@link CkiiParser} in full {@link PredictionMode#LL} mode, in two stages
+ * by the {@link TwoStageParser}, and without a parse tree by the {@link ScriptStreamParser}, which also extracts the
+ * {@link jay.aenigma.Definition}s of each file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark{
+	
+	@Param({"TRAITS", "CULTURES", "LANDED_TITLES", "EVENTS"})
+	public String folder;
+	
+	private GameFolder gameFolder;
+	private ByteBuffer bytes;
+	private CkiiTokenSource tokenSource;
+	private CommonTokenStream tokens;
+	private CkiiParser parser;
+	private ScriptStreamParser streamParser;
+	private int definitions;
+	private final ExtractionPlan.DefinitionSink sink = (name, mergeBehaviour) -> definitions++;
+	
+	@Setup
+	public void setUp(){
+		gameFolder = CkiiFolder.valueOf(folder);
+		bytes = ByteBuffer.wrap(BenchmarkInputs.contents(gameFolder, BenchmarkInputs.FILE_SIZE, 1));
+		tokenSource = new CkiiTokenSource(bytes, gameFolder.getCharset(), folder, null);
+		tokens = new CommonTokenStream(tokenSource);
+		parser = new CkiiParser(tokens);
+		parser.removeErrorListeners();
+		streamParser = new ScriptStreamParser(gameFolder.getCharset());
+	}
+	
+	private CkiiParser reset(){
+		tokenSource.reset(bytes, folder);
+		tokens.setTokenSource(tokenSource);
+		parser.setTokenStream(tokens);
+		return parser;
+	}
+	
+	@Benchmark
+	public CkiiParser.UnitContext ll(BenchmarkInputs.Megabytes megabytes){
+		CkiiParser parser = reset();
+		parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+		megabytes.add(bytes.remaining());
+		return parser.unit();
+	}
+	
+	@Benchmark
+	public CkiiParser.UnitContext twoStage(BenchmarkInputs.Megabytes megabytes){
+		megabytes.add(bytes.remaining());
+		return TwoStageParser.parseUnit(reset());
+	}
+	
+	@Benchmark
+	public int stream(BenchmarkInputs.Megabytes megabytes){
+		definitions = 0;
+		streamParser.parse(bytes, gameFolder.getExtractionPlan().newDefinitionHandler(sink));
+		megabytes.add(bytes.remaining());
+		return definitions;
+	}
+}
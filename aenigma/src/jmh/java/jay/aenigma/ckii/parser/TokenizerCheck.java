@@ -0,0 +1,144 @@
+package jay.aenigma.ckii.parser;
+
+import jay.aenigma.BenchmarkInputs;
+import jay.aenigma.ckii.CkiiFolder;
+import org.antlr.v4.runtime.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that {@link CkiiTokenizer} produces exactly the same tokens as {@link CkiiLexer}, i.e. equal in type, text,
+ * indices, line and position in line, and reports the same token recognition errors, both with the default
+ * {@link TokenFactory} of {@link CkiiTokenSource} and with another one. <br/>
+ * The inputs are the {@link BenchmarkInputs} of each script folder, a set of edge cases, and the files in the folders
+ * or files given as arguments, e.g. gradlew checkTokenizer --args="&lt;install folder&gt;/common". Exits with status 1
+ * if any input differs, after printing the first difference of each.
+ */
+public final class TokenizerCheck{
+	
+	private static final Charset CHARSET = CkiiFolder.TRAITS.getCharset();
+	private static final String[] EDGE_CASES = {
+			"",
+			"a",
+			"a = b\r\nc = d\n",
+			"a==b a>=b a<=b a>b a<b a=b <= >= == < > = <> =< << >>",
+			"<a >b <=c a< b> a<<b",
+			"yes no yess noo yes.1 no_1 _yes",
+			"1 -1 +1 1.5 -1.5 1. .5 1.2.3 1..2 1.2. -1.2.3 1.2.3.4 +-1 1e5 0x1F",
+			"event.1 my_event.10 a.b.1 _a.1 a1.1 a.1.1 .1 a. a.x",
+			"\"quoted\" \"with = { } # ; inside\" \"multi\nline\" \"\"",
+			"a = \"unterminated\n b = c",
+			"a;b ; ;; a = ;\n",
+			"# comment\na = b # trailing comment\r\n#\n#no newline at end",
+			"a\rb \r\r\n \r",
+			"{{}}{ a = { b c } }",
+			"événement = Åland über=ß œuvre € ™",
+			"\ta\t=\tb\t\t\n\n\n  c  ",
+			"\"",
+			"#",
+			"\r",
+			";",
+	};
+	
+	private TokenizerCheck(){
+	}
+	
+	public static void main(String[] args) throws IOException{
+		List<String> names = new ArrayList<>();
+		List<byte[]> inputs = new ArrayList<>();
+		for(int i = 0; i < EDGE_CASES.length; i++){
+			names.add("edge case " + i);
+			inputs.add(EDGE_CASES[i].getBytes(CHARSET));
+		}
+		for(CkiiFolder folder : CkiiFolder.values()){
+			if(folder != CkiiFolder.LOCALISATION){
+				names.add(folder.getPath());
+				inputs.add(BenchmarkInputs.contents(folder, 64 * 1024, 1));
+			}
+		}
+		for(String arg : args){
+			try(Stream<Path> paths = Files.walk(Paths.get(arg))){
+				for(Path path : paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList())){
+					String name = path.getFileName().toString().toLowerCase();
+					if(name.endsWith(".txt") || name.endsWith(".gfx") || name.endsWith(".gui")){
+						names.add(path.toString());
+						inputs.add(Files.readAllBytes(path));
+					}
+				}
+			}
+		}
+		
+		int failures = 0;
+		long tokens = 0;
+		for(int i = 0; i < inputs.size(); i++){
+			byte[] input = inputs.get(i);
+			String name = names.get(i);
+			List<String> expected = tokenize(input, name, true, null);
+			tokens += expected.size();
+			if(!compare(name, expected, tokenize(input, name, false, null))
+					|| !compare(name, expected, tokenize(input, name, false, new CommonTokenFactory(true))))
+				failures++;
+		}
+		System.out.printf("Compared %d tokens and errors of %d inputs, %d of which differ.%n",
+				tokens, inputs.size(), failures);
+		if(failures > 0)
+			System.exit(1);
+	}
+	
+	private static boolean compare(String name, List<String> expected, List<String> actual){
+		for(int k = 0; k < Math.max(expected.size(), actual.size()); k++){
+			String lexer = k < expected.size() ? expected.get(k) : "(none)";
+			String tokenizer = k < actual.size() ? actual.get(k) : "(none)";
+			if(!lexer.equals(tokenizer)){
+				System.out.printf("%s, token %d:%n\tCkiiLexer:     %s%n\tCkiiTokenizer: %s%n",
+						name, k, lexer, tokenizer);
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**Tokenizes the given input with either {@link CkiiLexer} or {@link CkiiTokenSource}, the latter with the given
+	 * {@link TokenFactory} unless it is null, and describes each token and token recognition error.
+	 * @return the descriptions, in the order the tokens and errors were produced in
+	 */
+	private static List<String> tokenize(byte[] input, String name, boolean lexer, TokenFactory<?> factory){
+		List<String> descriptions = new ArrayList<>();
+		ANTLRErrorListener listener = new BaseErrorListener(){
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+									int charPositionInLine, String msg, RecognitionException e){
+				descriptions.add(String.format("error %d:%d %s", line, charPositionInLine, msg));
+			}
+		};
+		TokenSource source;
+		if(lexer){
+			CkiiLexer ckiiLexer = new CkiiLexer(CharStreams.fromString(new String(input, CHARSET), name));
+			ckiiLexer.removeErrorListeners();
+			ckiiLexer.addErrorListener(listener);
+			source = ckiiLexer;
+		}
+		else{
+			source = new CkiiTokenSource(ByteBuffer.wrap(input), CHARSET, name, listener);
+			if(factory != null)
+				source.setTokenFactory(factory);
+		}
+		Token token;
+		do{
+			token = source.nextToken();
+			descriptions.add(String.format("%s '%s' [%d..%d] %d:%d",
+					CkiiLexer.VOCABULARY.getSymbolicName(token.getType()), token.getText(),
+					token.getStartIndex(), token.getStopIndex(), token.getLine(), token.getCharPositionInLine()));
+		}while(token.getType() != Token.EOF);
+		return descriptions;
+	}
+}
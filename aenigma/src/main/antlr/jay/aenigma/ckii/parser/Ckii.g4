@@ -14,11 +14,14 @@ statement
     | lhs=expression OPERATOR rhs=expression #ExpressionStatement
     ;
 
-block
-    : LBRACE RBRACE #EmptyBlock
-    | LBRACE statement+ RBRACE #StatementBlock
-    | LBRACE expression+ RBRACE #ExpressionBlock
-    | LBRACE block+ RBRACE #BlockBlock
+// the braces are matched outside of the alternatives, so that choosing one needs at most two tokens of lookahead
+block : LBRACE content=blockContent RBRACE;
+
+blockContent
+    : #EmptyBlock
+    | statement+ #StatementBlock
+    | expression+ #ExpressionBlock
+    | block+ #BlockBlock
     ;
 
 expression
@@ -3,6 +3,7 @@ package jay.aenigma;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Class whose instances represent problems in the User's setup, such as malformed files or conflicts.
@@ -141,4 +142,27 @@ public class Alert{
 		stringBuilder.append(System.lineSeparator());
 		return stringBuilder.toString();
 	}
+	
+	/**Two Alerts are equal iff they are equal in all properties, and involve the very same
+	 * {@link jay.aenigma.Mod.ModFile}s. An Alert involving a file that was re-parsed is thus never equal to one
+	 * involving its previous version.
+	 * @param o the object to compare with
+	 * @return true iff equal
+	 */
+	@Override
+	public boolean equals(Object o){
+		if(this == o)
+			return true;
+		if(!(o instanceof Alert))
+			return false;
+		Alert other = (Alert) o;
+		return severity == other.severity && kind == other.kind && gameFolder == other.gameFolder
+				&& Objects.equals(definitionName, other.definitionName) && Objects.equals(message, other.message)
+				&& files.equals(other.files);
+	}
+	
+	@Override
+	public int hashCode(){
+		return Objects.hash(severity, kind, gameFolder, definitionName, message, files);
+	}
 }
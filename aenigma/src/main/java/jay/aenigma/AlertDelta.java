@@ -0,0 +1,79 @@
+package jay.aenigma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class whose instances describe how the {@link Alert}s of a {@link ModList} changed in an update,
+ * see {@link ModList#update(java.util.Collection)}. <br/>
+ * An Alert that was updated, e.g. because one of its files was re-parsed, is represented by the removal of its
+ * previous instance and the addition of its new one.
+ */
+public final class AlertDelta{
+	
+	private final List<Alert> added = new ArrayList<>();
+	private final List<Alert> removed = new ArrayList<>();
+	
+	/**Records the replacement of the given previous Alert by the given new one, unless they are equal.
+	 * Either may be null, if an Alert was only removed or only added.
+	 * @param previous the previous Alert, or null
+	 * @param next the new Alert, or null
+	 * @return the Alert to keep: the previous instance if they are equal, or else the new one
+	 */
+	Alert replace(Alert previous, Alert next){
+		if(previous != null && previous.equals(next))
+			return previous;
+		if(previous != null)
+			removed.add(previous);
+		if(next != null)
+			added.add(next);
+		return next;
+	}
+	
+	/**Records the replacement of the given previous Alerts by the given new ones, skipping those that are equal.
+	 * @param previous the previous Alerts
+	 * @param next the new Alerts
+	 * @return the Alerts to keep, in the order of next: the previous instances of equal ones,
+	 * and the new ones otherwise
+	 */
+	List<Alert> replace(List<Alert> previous, List<Alert> next){
+		List<Alert> kept = new ArrayList<>(next.size());
+		for(Alert alert : next){
+			int index = previous.indexOf(alert);
+			if(index >= 0){
+				kept.add(previous.get(index));
+			}
+			else {
+				added.add(alert);
+				kept.add(alert);
+			}
+		}
+		for(Alert alert : previous){
+			if(!next.contains(alert))
+				removed.add(alert);
+		}
+		return kept;
+	}
+	
+	/**Retrieves the {@link List} of {@link Alert}s that were added, including the new instances of updated ones.
+	 * @return List of added Alerts
+	 */
+	public List<Alert> getAdded(){
+		return added;
+	}
+	
+	/**Retrieves the {@link List} of {@link Alert}s that were removed, including the previous instances of updated ones.
+	 * These are the same instances that were previously returned by the {@link ModList}.
+	 * @return List of removed Alerts
+	 */
+	public List<Alert> getRemoved(){
+		return removed;
+	}
+	
+	/**Returns true iff no {@link Alert}s were added or removed.
+	 * @return true iff this AlertDelta is empty
+	 */
+	public boolean isEmpty(){
+		return added.isEmpty() && removed.isEmpty();
+	}
+}
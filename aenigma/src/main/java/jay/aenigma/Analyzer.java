@@ -0,0 +1,91 @@
+package jay.aenigma;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A single phase of the analysis of a {@link ModList}, such as parsing its files or finding a kind of conflict. <br/>
+ * Each Analyzer declares the named products it requires as inputs, and those it produces as outputs, e.g. the
+ * shadowing of files or the {@link DefinitionTable}. An {@link AnalyzerPipeline} runs each Analyzer once all
+ * Analyzers producing its inputs are done, so that Analyzers that do not depend on each other run concurrently.
+ * <p/>
+ * The names of the products of the built-in Analyzers are listed in {@link ModList}, e.g. {@link ModList#DEFINITIONS}.
+ * Further Analyzers may be added to {@link GlobalState#analyzers}.
+ */
+public interface Analyzer{
+	
+	/**Retrieves the name of this Analyzer, as shown in the log.
+	 * @return the name
+	 */
+	String getName();
+	
+	/**Retrieves the names of the products that this Analyzer requires.
+	 * @return Set of names of inputs
+	 */
+	Set<String> getInputs();
+	
+	/**Retrieves the names of the products that this Analyzer produces once it is done.
+	 * @return Set of names of outputs
+	 */
+	Set<String> getOutputs();
+	
+	/**Performs this Analyzer's phase of the analysis of the given {@link ModList}. Called once its inputs are produced,
+	 * possibly concurrently with other Analyzers that neither produce nor require any of its inputs or outputs.
+	 * @param modList the ModList to analyze
+	 * @return the {@link List} of {@link Alert}s encountered in this phase
+	 * @throws Exception iff the analysis fails, in which case Analyzers requiring its outputs are not run
+	 */
+	List<Alert> analyze(ModList modList) throws Exception;
+	
+	/**
+	 * The function performing the phase of an {@link Analyzer} created by
+	 * {@link Analyzer#of(String, Set, Set, Function)}.
+	 */
+	@FunctionalInterface
+	interface Function{
+		/**Performs the analysis.
+		 * @param modList the ModList to analyze
+		 * @return the List of Alerts encountered
+		 * @throws Exception iff the analysis fails
+		 */
+		List<Alert> analyze(ModList modList) throws Exception;
+	}
+	
+	/**Creates a new Analyzer with the given name, inputs and outputs, that performs the given function.
+	 * @param name the name of the Analyzer
+	 * @param inputs the names of the products that it requires
+	 * @param outputs the names of the products that it produces
+	 * @param function the function performing the analysis
+	 * @return the new Analyzer
+	 */
+	static Analyzer of(String name, Set<String> inputs, Set<String> outputs, Function function){
+		Set<String> inputSet = Set.copyOf(inputs);
+		Set<String> outputSet = Set.copyOf(outputs);
+		return new Analyzer(){
+			@Override
+			public String getName(){
+				return name;
+			}
+			
+			@Override
+			public Set<String> getInputs(){
+				return inputSet;
+			}
+			
+			@Override
+			public Set<String> getOutputs(){
+				return outputSet;
+			}
+			
+			@Override
+			public List<Alert> analyze(ModList modList) throws Exception{
+				return function.analyze(modList);
+			}
+			
+			@Override
+			public String toString(){
+				return name;
+			}
+		};
+	}
+}
@@ -0,0 +1,140 @@
+package jay.aenigma;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * Schedules a set of {@link Analyzer}s according to their inputs and outputs, which form a Directed Acyclic Graph:
+ * each Analyzer is run as soon as all Analyzers producing its inputs are done, so that independent Analyzers run
+ * concurrently. The {@link Alert}s of all Analyzers are collected in the order they were given in, but may also be
+ * received as soon as each Analyzer is done.
+ */
+public final class AnalyzerPipeline{
+	
+	private final List<Analyzer> analyzers;
+	// the Analyzers producing the inputs of each Analyzer
+	private final Map<Analyzer, List<Analyzer>> producers = new HashMap<>();
+	// the Analyzers in an order in which each comes after all producers of its inputs
+	private final List<Analyzer> order = new ArrayList<>();
+	
+	/**Creates a new AnalyzerPipeline of the given {@link Analyzer}s, and checks that they can be scheduled.
+	 * @param analyzers the Analyzers
+	 * @param available the names of the products that are available without running any of the Analyzers
+	 * @throws IllegalArgumentException iff any product is produced by more than one Analyzer, any input is not
+	 * produced by any Analyzer nor available, or the Analyzers depend on each other cyclically
+	 */
+	public AnalyzerPipeline(List<Analyzer> analyzers, Set<String> available){
+		this.analyzers = List.copyOf(analyzers);
+		Map<String, Analyzer> producerMap = new HashMap<>();
+		for(Analyzer analyzer : this.analyzers){
+			for(String output : analyzer.getOutputs()){
+				Analyzer previous = producerMap.putIfAbsent(output, analyzer);
+				if(previous != null || available.contains(output))
+					throw new IllegalArgumentException(String.format("\"%s\" is produced by both %s and %s.",
+							output, analyzer.getName(), previous != null ? previous.getName() : "the ModList"));
+			}
+		}
+		for(Analyzer analyzer : this.analyzers){
+			List<Analyzer> inputProducers = new ArrayList<>();
+			for(String input : analyzer.getInputs()){
+				if(producerMap.containsKey(input))
+					inputProducers.add(producerMap.get(input));
+				else if(!available.contains(input))
+					throw new IllegalArgumentException(String.format(
+							"\"%s\" required by %s is not produced by any analyzer.", input, analyzer.getName()));
+			}
+			producers.put(analyzer, inputProducers);
+		}
+		
+		// depth-first search for a topological order, rejecting cycles
+		Set<Analyzer> visited = new HashSet<>();
+		Set<Analyzer> visiting = new HashSet<>();
+		for(Analyzer analyzer : this.analyzers){
+			visit(analyzer, visited, visiting);
+		}
+	}
+	
+	private void visit(Analyzer analyzer, Set<Analyzer> visited, Set<Analyzer> visiting){
+		if(visited.contains(analyzer))
+			return;
+		if(!visiting.add(analyzer))
+			throw new IllegalArgumentException(String.format("%s depends on its own outputs.", analyzer.getName()));
+		for(Analyzer producer : producers.get(analyzer)){
+			visit(producer, visited, visiting);
+		}
+		visiting.remove(analyzer);
+		visited.add(analyzer);
+		order.add(analyzer);
+	}
+	
+	/**Runs all {@link Analyzer}s of this pipeline on the given {@link ModList}, using the given {@link Executor},
+	 * and waits until all of them are done.
+	 * @param modList the ModList to analyze
+	 * @param executor the Executor to run the Analyzers with, usually {@link GlobalState#backgroundExecutor}
+	 * @return a {@link Map} relating each Analyzer to the {@link List} of {@link Alert}s it encountered,
+	 * in the order the Analyzers were given in
+	 * @throws ExecutionException iff any Analyzer threw, in which case those requiring its outputs were not run
+	 * @throws InterruptedException iff interrupted while waiting for the Analyzers
+	 */
+	public Map<Analyzer, List<Alert>> run(ModList modList, Executor executor)
+			throws ExecutionException, InterruptedException{
+		return run(modList, executor, (analyzer, alerts) -> {});
+	}
+	
+	/**Runs all {@link Analyzer}s of this pipeline on the given {@link ModList}, using the given {@link Executor},
+	 * and waits until all of them are done. The {@link Alert}s of each Analyzer are passed to the given listener as
+	 * soon as it is done, on the thread that ran it.
+	 * @param modList the ModList to analyze
+	 * @param executor the Executor to run the Analyzers with, usually {@link GlobalState#backgroundExecutor}
+	 * @param listener receives each Analyzer and the {@link List} of Alerts it encountered, once it is done
+	 * @return a {@link Map} relating each Analyzer to the List of Alerts it encountered,
+	 * in the order the Analyzers were given in
+	 * @throws ExecutionException iff any Analyzer threw, in which case those requiring its outputs were not run
+	 * @throws InterruptedException iff interrupted while waiting for the Analyzers
+	 */
+	public Map<Analyzer, List<Alert>> run(ModList modList, Executor executor,
+										  BiConsumer<Analyzer, List<Alert>> listener)
+			throws ExecutionException, InterruptedException{
+		Map<Analyzer, CompletableFuture<List<Alert>>> futures = new HashMap<>();
+		for(Analyzer analyzer : order){
+			CompletableFuture<?>[] inputs = producers.get(analyzer).stream()
+					.map(futures::get)
+					.toArray(CompletableFuture[]::new);
+			futures.put(analyzer, CompletableFuture.allOf(inputs).thenApplyAsync(ignored -> {
+				long time = System.nanoTime();
+				try{
+					List<Alert> alerts = analyzer.analyze(modList);
+					time = (System.nanoTime() - time) / 1_000_000;
+					GlobalState.log(String.format("Ran %s (%d ms).", analyzer.getName(), time));
+					if(alerts == null)
+						alerts = List.of();
+					listener.accept(analyzer, alerts);
+					return alerts;
+				}catch(RuntimeException e){
+					throw e;
+				}catch(Exception e){
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+		
+		// wait for all, so that no Analyzer is still running once this returns
+		ExecutionException failure = null;
+		Map<Analyzer, List<Alert>> results = new LinkedHashMap<>();
+		for(Analyzer analyzer : analyzers){
+			try{
+				results.put(analyzer, futures.get(analyzer).get());
+			}catch(ExecutionException e){
+				if(failure == null)
+					failure = e;
+			}
+		}
+		if(failure != null)
+			throw failure;
+		return results;
+	}
+}
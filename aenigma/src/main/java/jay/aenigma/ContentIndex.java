@@ -0,0 +1,181 @@
+package jay.aenigma;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index of the results of parsing files by their contents, so that byte-identical files, such as verbatim copies of
+ * vanilla files shipped by several {@link Mod}s, are parsed only once and share their rows of {@link Definition}s.
+ * <p/>
+ * Contents are identified by the {@link GameFolder} of the file, whether it is a localisation file, its size and its
+ * {@link ParseCache#digest(ByteBuffer)}. <br/>
+ * A ContentIndex may be used by several {@link jay.aenigma.Mod.FileTask}s concurrently. If several of them encounter
+ * the same contents at once, one parses its file while the others wait for the result.
+ * <p/>
+ * The Results are also recorded by the {@link ParseCache#getKey(Mod.ModFile) key} of each file, so that
+ * {@link ModList}s that share a ContentIndex, see {@link ModListBatch}, reuse the Results for the same unchanged
+ * files of each other's Mods without even reading them.
+ */
+final class ContentIndex{
+	
+	/**
+	 * The results of parsing some contents, i.e. the rows of their {@link Definition}s and their parse error
+	 * {@link Alert}s, as found in the {@link jay.aenigma.Mod.ModFile} that was parsed.
+	 */
+	static final class Result{
+		private final Mod.ModFile modFile;
+		private final DefinitionTable.FileRows rows;
+		private final List<Alert> alerts;
+		
+		/**Records the results of parsing the given {@link jay.aenigma.Mod.ModFile}, which must not change afterwards.
+		 * @param modFile the ModFile whose rows were found
+		 * @param alerts the Alerts generated while parsing the ModFile
+		 */
+		Result(Mod.ModFile modFile, List<Alert> alerts){
+			this.modFile = modFile;
+			this.rows = modFile.rows;
+			this.alerts = alerts;
+		}
+		
+		/**Retrieves the {@link ParseCache#digest(ByteBuffer)} of the contents these results were found in.
+		 * @return the digest, which must not be modified
+		 */
+		byte[] getDigest(){
+			return modFile.getDigest();
+		}
+		
+		/**Shares these results with the given {@link jay.aenigma.Mod.ModFile} of identical contents: its rows are
+		 * replaced by the ones found, and the Alerts are recreated to refer to it.
+		 * @param modFile the ModFile
+		 * @return the List of Alerts for the ModFile
+		 */
+		List<Alert> restore(Mod.ModFile modFile){
+			if(modFile == this.modFile)
+				return alerts;
+			modFile.rows = rows;
+			if(alerts.isEmpty())
+				return List.of();
+			List<Alert> copies = new ArrayList<>(alerts.size());
+			for(Alert alert : alerts){
+				copies.add(new Alert(alert.getSeverity(), alert.getKind(), modFile.getGameFolder(), List.of(modFile),
+						alert.getDefinitionName(), alert.getMessage()));
+			}
+			return copies;
+		}
+	}
+	
+	private static final class Key{
+		final GameFolder gameFolder;
+		final boolean localisation;
+		final long size;
+		final byte[] digest;
+		
+		Key(GameFolder gameFolder, boolean localisation, long size, byte[] digest){
+			this.gameFolder = gameFolder;
+			this.localisation = localisation;
+			this.size = size;
+			this.digest = digest;
+		}
+		
+		@Override
+		public boolean equals(Object o){
+			if(this == o) return true;
+			if(!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return gameFolder == key.gameFolder && localisation == key.localisation
+					&& size == key.size && Arrays.equals(digest, key.digest);
+		}
+		
+		@Override
+		public int hashCode(){
+			return 31 * Objects.hash(gameFolder, localisation, size) + Arrays.hashCode(digest);
+		}
+	}
+	
+	private static final class FileResult{
+		final long size;
+		final long modified;
+		final Result result;
+		
+		FileResult(long size, long modified, Result result){
+			this.size = size;
+			this.modified = modified;
+			this.result = result;
+		}
+	}
+	
+	private final Map<Key, CompletableFuture<Result>> results = new ConcurrentHashMap<>();
+	private final Map<String, FileResult> fileResults = new ConcurrentHashMap<>();
+	private final AtomicInteger hits = new AtomicInteger();
+	
+	/**Retrieves the {@link Result} of parsing the contents of the given {@link jay.aenigma.Mod.ModFile}, whose size
+	 * and digest must be known. If no identical contents were encountered before, they are parsed by calling the
+	 * given parser, and the Result is recorded. If parsing identical contents failed before, they are parsed again.
+	 * @param modFile the ModFile
+	 * @param localisation true iff the ModFile is parsed as a localisation file
+	 * @param parser the function that parses the ModFile
+	 * @return the Result, which must be {@link Result#restore(Mod.ModFile) restored} to the ModFile
+	 * @throws Exception iff the parser throws
+	 */
+	Result get(Mod.ModFile modFile, boolean localisation, Callable<Result> parser) throws Exception{
+		Key key = new Key(modFile.getGameFolder(), localisation, modFile.getSize(), modFile.getDigest());
+		CompletableFuture<Result> future = new CompletableFuture<>();
+		CompletableFuture<Result> previous = results.putIfAbsent(key, future);
+		if(previous != null){
+			Result result = previous.exceptionally(e -> null).join();
+			if(result != null){
+				hits.incrementAndGet();
+				return result;
+			}
+			return parser.call();
+		}
+		try{
+			Result result = parser.call();
+			future.complete(result);
+			return result;
+		}catch(Exception | Error e){
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+	
+	/**Retrieves the {@link Result} recorded for the file with the given key, provided that the file is unchanged since,
+	 * i.e. has the same size and modification time.
+	 * @param key the key of the file, see {@link ParseCache#getKey(Mod.ModFile)}
+	 * @param size the current size of the file
+	 * @param modified the current modification time of the file
+	 * @return the Result, which must be {@link Result#restore(Mod.ModFile) restored} to the ModFile, or null if none
+	 */
+	Result getFile(String key, long size, long modified){
+		FileResult fileResult = fileResults.get(key);
+		if(fileResult == null || fileResult.size != size || fileResult.modified != modified || modified < 0)
+			return null;
+		hits.incrementAndGet();
+		return fileResult.result;
+	}
+	
+	/**Records the {@link Result} for the file with the given key, see {@link ContentIndex#getFile(String, long, long)}.
+	 * @param key the key of the file, see {@link ParseCache#getKey(Mod.ModFile)}
+	 * @param size the size of the file
+	 * @param modified the modification time of the file
+	 * @param result the Result found for the file
+	 */
+	void putFile(String key, long size, long modified, Result result){
+		fileResults.put(key, new FileResult(size, modified, result));
+	}
+	
+	/**Retrieves the number of files whose Results were shared rather than parsed.
+	 * @return the number of hits
+	 */
+	int getHits(){
+		return hits.get();
+	}
+}
@@ -1,65 +1,93 @@
 package jay.aenigma;
 
 /**
- * Class representing TODO: words
+ * Class representing TODO: words <br/>
+ * Definitions are views of a single row of a {@link DefinitionTable}, created only when needed.
  */
 public class Definition{
-	private String name;
-	private Mod.ModFile file;
-	private MergeBehaviour mergeBehaviour;
+	private final DefinitionTable table;
+	private final int row;
 	
-	/**Create a new Definition with the given parameters
-	 * @param name Name of the Definition, as given in the ModFile
-	 * @param file ModFile that the Definition originates from
-	 * @param mergeBehaviour mergeBehaviour that the Definition exhibits
+	/**Create a new Definition that views the given row of the given {@link DefinitionTable}
+	 * @param table the DefinitionTable that holds the Definition
+	 * @param row the row of the Definition in the table
 	 */
-	public Definition(String name, Mod.ModFile file, MergeBehaviour mergeBehaviour){
-		this.name = name;
-		this.file = file;
-		this.mergeBehaviour = mergeBehaviour;
+	Definition(DefinitionTable table, int row){
+		this.table = table;
+		this.row = row;
 	}
 	
 	/**Retrieves the {@link String} representing this Definitions Name, as found in its {@link jay.aenigma.Mod.ModFile}
 	 * @return the name
 	 */
 	public String getName(){
-		return name;
+		return GlobalState.symbols.name(getNameId());
+	}
+	
+	/**Retrieves the id of this Definitions Name in {@link GlobalState#symbols}.
+	 * Two Definitions have equal Names iff they have equal Name ids.
+	 * @return the id of the name
+	 */
+	public int getNameId(){
+		return table.getName(row);
 	}
 	
 	/**Retrieves the {@link jay.aenigma.Mod.ModFile} that this Definition resides in.
 	 * @return the ModFile
 	 */
 	public Mod.ModFile getFile(){
-		return file;
+		return table.getFile(row);
 	}
 	
 	/**Retrieves the {@link GameFolder} that this Definition belongs to
 	 * @return the GameFolder
 	 */
 	public GameFolder getGameFolder(){
-		return file.getGameFolder();
+		return table.getGameFolder(row);
 	}
 	
 	/**Retrieves the {@link Mod} that this Definition originates from.
 	 * @return the Mod
 	 */
 	public Mod getMod(){
-		return file.getMod();
+		return getFile().getMod();
 	}
 	
 	/**Retrieves the {@link MergeBehaviour} that this Definition exhibits.
 	 * @return the MergeBehaviour
 	 */
 	public MergeBehaviour getMergeBehaviour(){
-		return mergeBehaviour;
+		return table.getMergeBehaviour(row);
+	}
+	
+	/**Retrieves the row of this Definition in its {@link DefinitionTable}.
+	 * @return the row
+	 */
+	public int getRow(){
+		return row;
 	}
 	
 	@Override
 	public String toString(){
-		return name;
+		return getName();
+	}
+	
+	@Override
+	public boolean equals(Object o){
+		if(this == o)
+			return true;
+		if(!(o instanceof Definition))
+			return false;
+		Definition other = (Definition) o;
+		return table == other.table && row == other.row;
+	}
+	
+	@Override
+	public int hashCode(){
+		return row;
 	}
 	
 	public boolean isEquivalent(Definition other){
-		return file.gameFolder.equals(other.file.gameFolder) && name.equals(other.name);
+		return getNameId() == other.getNameId() && table.getFolder(row) == other.table.getFolder(other.row);
 	}
 }
@@ -0,0 +1,366 @@
+package jay.aenigma;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar table of all {@link Definition}s found in the {@link Mod}s of a {@link ModList}. <br/>
+ * Each Definition is a row, stored as an entry in parallel arrays of Name ids, file ids, {@link GameFolder} ordinals
+ * and {@link MergeBehaviour} ordinals, so that scanning the table touches no objects but the arrays themselves.
+ * The rows of a single {@link jay.aenigma.Mod.ModFile} are contiguous, as are those of a single Mod until any of its
+ * files are re-parsed.
+ * <p/>
+ * Definition objects are only created on demand, as views of a single row; see {@link DefinitionTable#get(int)}.
+ * <br/> Rows are only ever appended, and the table is not thread-safe. The rows of ModFiles that were re-parsed or
+ * deleted remain in the table until they are {@link DefinitionTable#release(Mod.ModFile) released} and the table is
+ * {@link DefinitionTable#compact() compacted}, which moves all other rows.
+ */
+public final class DefinitionTable{
+	
+	private static final MergeBehaviour[] MERGE_BEHAVIOURS = MergeBehaviour.values();
+	
+	private final GameFolder[] gameFolders;
+	private final List<Mod.ModFile> files = new ArrayList<>();
+	private int[] names = new int[1024];
+	private int[] fileIds = new int[1024];
+	private byte[] folders = new byte[1024];
+	private byte[] merges = new byte[1024];
+	private int size = 0;
+	// rows of released ModFiles, which are removed by compact()
+	private int deadRows = 0;
+	
+	/**
+	 * Growable buffer of the rows of a single {@link jay.aenigma.Mod.ModFile}, filled while it is parsed and
+	 * later appended to a {@link DefinitionTable} as a whole.
+	 */
+	static final class FileRows{
+		private int[] names = new int[16];
+		private byte[] merges = new byte[16];
+		private int size = 0;
+		
+		/**Adds a row to this buffer.
+		 * @param name the id of the Name of the Definition in {@link GlobalState#symbols}
+		 * @param mergeBehaviour the {@link MergeBehaviour} of the Definition
+		 */
+		void add(int name, MergeBehaviour mergeBehaviour){
+			if(size == names.length){
+				names = Arrays.copyOf(names, size * 2);
+				merges = Arrays.copyOf(merges, size * 2);
+			}
+			names[size] = name;
+			merges[size] = (byte) mergeBehaviour.ordinal();
+			size++;
+		}
+		
+		/**
+		 * Discards all rows added so far.
+		 */
+		void clear(){
+			size = 0;
+		}
+		
+		/**Retrieves the number of rows in this buffer.
+		 * @return the number of rows
+		 */
+		int size(){
+			return size;
+		}
+		
+		/**Retrieves the Name id of the given row of this buffer.
+		 * @param index the index of the row
+		 * @return the id of the Name
+		 */
+		int getName(int index){
+			return names[index];
+		}
+		
+		/**Retrieves the {@link MergeBehaviour} of the given row of this buffer.
+		 * @param index the index of the row
+		 * @return the MergeBehaviour
+		 */
+		MergeBehaviour getMergeBehaviour(int index){
+			return MERGE_BEHAVIOURS[merges[index]];
+		}
+	}
+	
+	/**Creates a new, empty DefinitionTable for the given {@link GameFolder}s, which must be indexed by their
+	 * {@link GameFolder#ordinal()}.
+	 * @param gameFolders the GameFolders, usually {@link Game#getGameFolders()}
+	 */
+	public DefinitionTable(GameFolder[] gameFolders){
+		this.gameFolders = gameFolders.clone();
+	}
+	
+	/**Appends the given rows of the given {@link jay.aenigma.Mod.ModFile} to this table.
+	 * @param file the ModFile
+	 * @param rows the rows of the Definitions found in the ModFile
+	 * @return the index of the first appended row
+	 */
+	int append(Mod.ModFile file, FileRows rows){
+		int fileId = files.size();
+		files.add(file);
+		byte folder = (byte) file.getGameFolder().ordinal();
+		
+		int first = size;
+		ensureCapacity(size + rows.size);
+		System.arraycopy(rows.names, 0, names, first, rows.size);
+		System.arraycopy(rows.merges, 0, merges, first, rows.size);
+		Arrays.fill(fileIds, first, first + rows.size, fileId);
+		Arrays.fill(folders, first, first + rows.size, folder);
+		size += rows.size;
+		return first;
+	}
+	
+	/**Marks the rows of the given {@link jay.aenigma.Mod.ModFile} as dead, after it was re-parsed or deleted,
+	 * so that they are removed by the next {@link DefinitionTable#compact()}. Does nothing if it has no rows.
+	 * @param file the ModFile, which must no longer be referenced by its {@link Mod}
+	 */
+	void release(Mod.ModFile file){
+		if(file.hasPendingDefinitions() || file.getEndRow() == file.getFirstRow())
+			return;
+		int fileId = fileIds[file.getFirstRow()];
+		if(files.get(fileId) == file){
+			files.set(fileId, null);
+			deadRows += file.getEndRow() - file.getFirstRow();
+		}
+	}
+	
+	/**Returns true iff the dead rows of this table outnumber half of its live rows,
+	 * i.e. iff it should be {@link DefinitionTable#compact() compacted}.
+	 * @return true iff the table should be compacted
+	 */
+	boolean needsCompaction(){
+		return deadRows > (size - deadRows) / 2;
+	}
+	
+	/**Removes all dead rows, see {@link DefinitionTable#release(Mod.ModFile)}, by moving each live row down
+	 * while keeping their order. The rows of each {@link jay.aenigma.Mod.ModFile} remain contiguous, and each is told
+	 * its new first row. Any rows previously retrieved from this table, e.g. those of {@link Definition}s, are only
+	 * valid after they are mapped to their new rows.
+	 * @return the new row of each previous row, or -1 for those that were removed
+	 */
+	int[] compact(){
+		int[] newRows = new int[size];
+		int[] newFileIds = new int[files.size()];
+		Arrays.fill(newFileIds, -1);
+		List<Mod.ModFile> liveFiles = new ArrayList<>(files.size());
+		int live = 0;
+		for(int row = 0; row < size; row++){
+			int fileId = fileIds[row];
+			Mod.ModFile file = files.get(fileId);
+			if(file == null){
+				newRows[row] = -1;
+				continue;
+			}
+			if(newFileIds[fileId] < 0){
+				newFileIds[fileId] = liveFiles.size();
+				liveFiles.add(file);
+				file.moveDefinitions(this, live);
+			}
+			names[live] = names[row];
+			fileIds[live] = newFileIds[fileId];
+			folders[live] = folders[row];
+			merges[live] = merges[row];
+			newRows[row] = live++;
+		}
+		// files without rows are no longer needed either, since no row refers to them
+		files.clear();
+		files.addAll(liveFiles);
+		size = live;
+		deadRows = 0;
+		int length = Math.max(1024, size * 2);
+		if(names.length > length){
+			names = Arrays.copyOf(names, length);
+			fileIds = Arrays.copyOf(fileIds, length);
+			folders = Arrays.copyOf(folders, length);
+			merges = Arrays.copyOf(merges, length);
+		}
+		return newRows;
+	}
+	
+	private void ensureCapacity(int capacity){
+		if(capacity > names.length){
+			int length = Math.max(capacity, names.length * 2);
+			names = Arrays.copyOf(names, length);
+			fileIds = Arrays.copyOf(fileIds, length);
+			folders = Arrays.copyOf(folders, length);
+			merges = Arrays.copyOf(merges, length);
+		}
+	}
+	
+	/**Retrieves the number of rows in this table.
+	 * @return the number of rows
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/**Retrieves the id of the Name of the {@link Definition} in the given row, see {@link GlobalState#symbols}.
+	 * @param row the row
+	 * @return the id of the Name
+	 */
+	public int getName(int row){
+		return names[row];
+	}
+	
+	/**Retrieves the key of the {@link Definition} in the given row, which is equal for all Definitions that are equal
+	 * in Name and {@link GameFolder}, see {@link DefinitionTable#getKey(int, int)}.
+	 * @param row the row
+	 * @return the key
+	 */
+	public long getKey(int row){
+		return getKey(folders[row], names[row]);
+	}
+	
+	/**Combines the given {@link GameFolder#ordinal()} and Name id into a single key. Keys are ordered by
+	 * Name id first, and GameFolder second.
+	 * @param folder the ordinal of the GameFolder
+	 * @param name the id of the Name in {@link GlobalState#symbols}
+	 * @return the key
+	 */
+	public static long getKey(int folder, int name){
+		return (long) name << 32 | folder;
+	}
+	
+	/**Retrieves the Name id of the given key, see {@link DefinitionTable#getKey(int, int)}.
+	 * @param key the key
+	 * @return the id of the Name
+	 */
+	public static int getNameOfKey(long key){
+		return (int) (key >>> 32);
+	}
+	
+	/**Retrieves the id of the {@link jay.aenigma.Mod.ModFile} of the {@link Definition} in the given row.
+	 * Two rows have the same file id iff they were found in the same ModFile.
+	 * @param row the row
+	 * @return the id of the ModFile
+	 * @see DefinitionTable#getFile(int)
+	 */
+	public int getFileId(int row){
+		return fileIds[row];
+	}
+	
+	/**Retrieves the {@link jay.aenigma.Mod.ModFile} of the {@link Definition} in the given row.
+	 * @param row the row
+	 * @return the ModFile
+	 */
+	public Mod.ModFile getFile(int row){
+		return files.get(fileIds[row]);
+	}
+	
+	/**Retrieves the {@link GameFolder#ordinal()} of the {@link Definition} in the given row.
+	 * @param row the row
+	 * @return the ordinal of the GameFolder
+	 */
+	public int getFolder(int row){
+		return folders[row];
+	}
+	
+	/**Retrieves the {@link GameFolder} of the {@link Definition} in the given row.
+	 * @param row the row
+	 * @return the GameFolder
+	 */
+	public GameFolder getGameFolder(int row){
+		return gameFolders[folders[row]];
+	}
+	
+	/**Retrieves the {@link MergeBehaviour} of the {@link Definition} in the given row.
+	 * @param row the row
+	 * @return the MergeBehaviour
+	 */
+	public MergeBehaviour getMergeBehaviour(int row){
+		return MERGE_BEHAVIOURS[merges[row]];
+	}
+	
+	/**Creates a {@link Definition} that views the given row.
+	 * @param row the row
+	 * @return a new Definition
+	 */
+	public Definition get(int row){
+		if(row < 0 || row >= size)
+			throw new IndexOutOfBoundsException(row);
+		return new Definition(this, row);
+	}
+	
+	/**Creates an unmodifiable {@link List} that views the given range of rows as {@link Definition}s,
+	 * creating each one only when it is retrieved.
+	 * @param from the first row, inclusive
+	 * @param to the last row, exclusive
+	 * @return a List of Definitions
+	 */
+	public List<Definition> view(int from, int to){
+		return new AbstractList<>(){
+			@Override
+			public Definition get(int index){
+				if(index < 0 || index >= to - from)
+					throw new IndexOutOfBoundsException(index);
+				return new Definition(DefinitionTable.this, from + index);
+			}
+			
+			@Override
+			public int size(){
+				return to - from;
+			}
+		};
+	}
+	
+	/**Groups the given range of rows by key, see {@link DefinitionTable#getKey(int)}.
+	 * @param from the first row, inclusive
+	 * @param to the last row, exclusive
+	 * @return the rows of each key, in ascending order
+	 */
+	Map<Long, int[]> groupByKey(int from, int to){
+		return groupByKey(new int[]{from}, new int[]{to});
+	}
+	
+	/**Groups the rows of the given {@link jay.aenigma.Mod.ModFile}s by key, see {@link DefinitionTable#getKey(int)}.
+	 * @param files the ModFiles, whose rows must all have been appended
+	 * @return the rows of each key, in the order of the given ModFiles
+	 */
+	Map<Long, int[]> groupByKey(Collection<Mod.ModFile> files){
+		int[] from = new int[files.size()];
+		int[] to = new int[files.size()];
+		int i = 0;
+		for(Mod.ModFile file : files){
+			from[i] = file.getFirstRow();
+			to[i] = file.getEndRow();
+			i++;
+		}
+		return groupByKey(from, to);
+	}
+	
+	private Map<Long, int[]> groupByKey(int[] from, int[] to){
+		// count the rows of each key first, then fill each array from its end, so that none are copied as they grow
+		Map<Long, int[]> counts = new HashMap<>();
+		for(int i = 0; i < from.length; i++){
+			for(int row = from[i]; row < to[i]; row++){
+				counts.computeIfAbsent(getKey(row), key -> new int[1])[0]++;
+			}
+		}
+		Map<Long, int[]> groups = new HashMap<>(counts.size() * 4 / 3 + 1);
+		counts.forEach((key, count) -> groups.put(key, new int[count[0]]));
+		for(int i = from.length - 1; i >= 0; i--){
+			for(int row = to[i] - 1; row >= from[i]; row--){
+				long key = getKey(row);
+				groups.get(key)[--counts.get(key)[0]] = row;
+			}
+		}
+		return groups;
+	}
+	
+	/**Concatenates the given arrays of rows.
+	 * @param rows the first rows
+	 * @param more the rows to append
+	 * @return a new array
+	 */
+	static int[] appendRows(int[] rows, int[] more){
+		int[] result = Arrays.copyOf(rows, rows.length + more.length);
+		System.arraycopy(more, 0, result, rows.length, more.length);
+		return result;
+	}
+}
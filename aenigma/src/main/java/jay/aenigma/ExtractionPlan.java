@@ -0,0 +1,227 @@
+package jay.aenigma;
+
+import jay.aenigma.ckii.NamingType;
+import jay.aenigma.ckii.parser.CkiiTokenizer;
+import jay.aenigma.ckii.parser.ScriptHandler;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable description of how the {@link Definition}s of a {@link GameFolder} are extracted from its files. <br/>
+ * Each GameFolder compiles its properties into an ExtractionPlan once, see {@link GameFolder#getExtractionPlan()},
+ * so that none of that work has to be repeated for every file that is parsed.
+ */
+public final class ExtractionPlan{
+	
+	/**
+	 * Receiver for the names of the {@link Definition}s found by an {@link ExtractionPlan}.
+	 */
+	@FunctionalInterface
+	public interface DefinitionSink{
+		/**Called for each Definition that is found.
+		 * @param name the id of the Name of the Definition in {@link GlobalState#symbols}
+		 * @param mergeBehaviour the {@link MergeBehaviour} of the Definition
+		 */
+		void define(int name, MergeBehaviour mergeBehaviour);
+	}
+	
+	private final Charset charset;
+	private final boolean singleByte;
+	private final Predicate<String> reservedNames;
+	private final NamingType namingType;
+	private final String idField;
+	private final MergeBehaviour mergeBehaviour;
+	private final MergeBehaviour nestedMergeBehaviour;
+	private final int blockDepth;
+	
+	/**Compiles the properties of the given {@link GameFolder} into a new ExtractionPlan.
+	 * @param gameFolder the GameFolder
+	 */
+	public ExtractionPlan(GameFolder gameFolder){
+		this.charset = gameFolder.getCharset();
+		this.singleByte = CkiiTokenizer.isSupported(charset);
+		Pattern pattern = gameFolder.getReservedNames();
+		this.reservedNames = pattern != null ? pattern.asPredicate() : String::isEmpty;
+		this.namingType = gameFolder.getNamingType();
+		this.idField = gameFolder.getIdField();
+		this.mergeBehaviour = gameFolder.getMergeBehaviour();
+		// the groups of a SECOND_LEVEL folder are merged, but their members are replaced
+		this.nestedMergeBehaviour =
+				namingType == NamingType.SECOND_LEVEL && mergeBehaviour == MergeBehaviour.MERGE_GROUPS ?
+						MergeBehaviour.REPLACE : mergeBehaviour;
+		switch(namingType){
+			case TOP_LEVEL:
+				blockDepth = 0;
+				break;
+			case SECOND_LEVEL:
+			case ID_FIELD:
+				blockDepth = 1;
+				break;
+			case SECOND_LEVEL_ID_FIELD:
+				blockDepth = 2;
+				break;
+			default:
+				blockDepth = Integer.MAX_VALUE;
+				break;
+		}
+	}
+	
+	/**Retrieves the {@link Charset} that files following this plan are encoded with.
+	 * @return the Charset
+	 */
+	public Charset getCharset(){
+		return charset;
+	}
+	
+	/**Returns true iff the {@link Charset} of this plan can be tokenized byte by byte.
+	 * @see CkiiTokenizer#isSupported(Charset)
+	 * @return true iff the Charset is single-byte
+	 */
+	public boolean isSingleByte(){
+		return singleByte;
+	}
+	
+	/**Checks whether the given name is reserved, i.e. whether it may not be the Name of a {@link Definition}.
+	 * @param name the name to check
+	 * @return true iff the name is reserved
+	 */
+	public boolean isReserved(String name){
+		return reservedNames.test(name);
+	}
+	
+	/**Interns the given name and passes it on to the given {@link DefinitionSink}, unless it is reserved.
+	 * Used for files whose names are not nested, such as localisation.
+	 * @param name the name of a Definition
+	 * @param sink the DefinitionSink
+	 */
+	public void defineName(CharSequence name, DefinitionSink sink){
+		define(name, mergeBehaviour, sink);
+	}
+	
+	private void define(CharSequence name, MergeBehaviour mergeBehaviour, DefinitionSink sink){
+		define(GlobalState.symbols.intern(name), mergeBehaviour, sink);
+	}
+	
+	private void define(int name, MergeBehaviour mergeBehaviour, DefinitionSink sink){
+		if(!reservedNames.test(GlobalState.symbols.name(name)))
+			sink.define(name, mergeBehaviour);
+	}
+	
+	/**Creates a new {@link ScriptHandler} that extracts all Definitions of a single script file in one pass,
+	 * and passes them on to the given {@link DefinitionSink}.
+	 * @param sink the DefinitionSink
+	 * @return a new ScriptHandler, to be used for a single file.
+	 */
+	public ScriptHandler newDefinitionHandler(DefinitionSink sink){
+		return new DefinitionHandler(sink);
+	}
+	
+	/**
+	 * {@link ScriptHandler} that tracks the nesting depth of named blocks, and finds names as prescribed by the
+	 * {@link NamingType} of the enclosing plan.
+	 */
+	private class DefinitionHandler implements ScriptHandler{
+		private final DefinitionSink sink;
+		// ids of the titles of the enclosing blocks, or -1 for blocks that are not titles
+		private int[] titles = namingType == NamingType.PREFIX_ANY_LEVEL ? new int[16] : null;
+		private int titleCount = 0;
+		private final BitSet anonymous = new BitSet();
+		private int level = 0;
+		private int depth = 0;
+		
+		DefinitionHandler(DefinitionSink sink){
+			this.sink = sink;
+		}
+		
+		private void define(CharSequence name, MergeBehaviour mergeBehaviour){
+			ExtractionPlan.this.define(name, mergeBehaviour, sink);
+		}
+		
+		@Override
+		public boolean enterBlock(CharSequence key){
+			if(key == null){
+				anonymous.set(level++);
+				return true;
+			}
+			switch(namingType){
+				case TOP_LEVEL:
+					define(key, mergeBehaviour);
+					break;
+				case SECOND_LEVEL:
+					if(depth == 0 && mergeBehaviour == MergeBehaviour.MERGE_GROUPS)
+						define(key, mergeBehaviour);
+					else if(depth == 1)
+						define(key, nestedMergeBehaviour);
+					break;
+				case PREFIX_ANY_LEVEL:
+					if(titleCount == titles.length)
+						titles = Arrays.copyOf(titles, titleCount * 2);
+					titles[titleCount++] = isTitle(key) ? GlobalState.symbols.intern(key) : -1;
+					break;
+				default:
+					break;
+			}
+			if(depth < blockDepth){
+				anonymous.clear(level++);
+				depth++;
+				return true;
+			}
+			else if(titles != null){
+				titleCount--;
+			}
+			return false;
+		}
+		
+		@Override
+		public void exitBlock(){
+			if(anonymous.get(--level))
+				return;
+			depth--;
+			if(titles != null){
+				int title = titles[--titleCount];
+				if(title >= 0)
+					ExtractionPlan.this.define(title, mergeBehaviour, sink);
+			}
+		}
+		
+		@Override
+		public void keyValue(CharSequence key, CharSequence value){
+			if(idField != null && equalsIgnoreCase(idField, key))
+				define(value, mergeBehaviour);
+		}
+	}
+	
+	/**Equivalent to {@link String#equalsIgnoreCase(String)}, but for any {@link CharSequence}.*/
+	private static boolean equalsIgnoreCase(String string, CharSequence sequence){
+		int length = string.length();
+		if(sequence.length() != length)
+			return false;
+		for(int i = 0; i < length; i++){
+			char a = string.charAt(i);
+			char b = sequence.charAt(i);
+			if(a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+					&& Character.toLowerCase(a) != Character.toLowerCase(b))
+				return false;
+		}
+		return true;
+	}
+	
+	private static boolean isTitle(CharSequence key){
+		if(key.length() < 2 || key.charAt(1) != '_')
+			return false;
+		switch(key.charAt(0)){
+			case 'b':
+			case 'c':
+			case 'd':
+			case 'k':
+			case 'e':
+				return true;
+			default:
+				return false;
+		}
+	}
+}
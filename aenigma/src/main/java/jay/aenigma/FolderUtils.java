@@ -1,11 +1,19 @@
 package jay.aenigma;
 
+import jay.aenigma.ckii.parser.ByteCharStream;
+import org.antlr.v4.runtime.CharStream;
+
 import javax.swing.filechooser.FileSystemView;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -17,6 +25,10 @@ public final class FolderUtils{
 	
 	private static final String STEAM_APPS_COMMON = "SteamApps/common";
 	private static final String REG_QUERY_STEAM_PATH = "reg query \"HKEY_CURRENT_USER\\SOFTWARE\\Valve\\Steam\" /v SteamPath";
+	/**Files of at least this size are memory-mapped by {@link FolderUtils#readFile(Path)} instead of read*/
+	private static final long MAP_THRESHOLD = 64 * 1024;
+	// mapped files cannot be modified on Windows until the mapping is garbage-collected
+	private static final boolean MAP_SUPPORTED = !System.getProperty("os.name", "").startsWith("Windows");
 	
 	/**Pattern that matches txt files*/
 	public static final Pattern txtPattern = Pattern.compile("\\.txt$");
@@ -55,6 +67,58 @@ public final class FolderUtils{
 				.filter(path -> predicate.test(path.getFileName().toString()));
 	}
 	
+	/**Retrieves the contents of the {@link java.io.File} at the given {@link Path} as a read-only {@link ByteBuffer}.
+	 * <p/>
+	 * Large Files on the default {@link java.nio.file.FileSystem} are memory-mapped, so that their contents are paged
+	 * in by the operating system rather than copied onto the heap; all others are read in their entirety.
+	 * Files are never mapped on Windows, where a mapped File cannot be modified until the returned buffer has been
+	 * garbage-collected.
+	 * @param path Path of the File to read
+	 * @return ByteBuffer with the File's contents, positioned at its start
+	 * @throws IOException iff reading the File fails
+	 */
+	public static ByteBuffer readFile(Path path) throws IOException{
+		return readFile(path, true);
+	}
+	
+	/**Retrieves the contents of the {@link java.io.File} at the given {@link Path} as a read-only {@link ByteBuffer},
+	 * as by {@link FolderUtils#readFile(Path)}, but only memory-maps large Files if allowed to. <br/>
+	 * Files that may be modified while or soon after being read, such as those of watched {@link Mod}s, should not be
+	 * mapped: besides being locked on Windows, a mapped File that is truncated faults when its contents are accessed.
+	 * @param path Path of the File to read
+	 * @param map true iff the File may be memory-mapped
+	 * @return ByteBuffer with the File's contents, positioned at its start
+	 * @throws IOException iff reading the File fails
+	 */
+	public static ByteBuffer readFile(Path path, boolean map) throws IOException{
+		if(path.getFileSystem() != FileSystems.getDefault())
+			return ByteBuffer.wrap(Files.readAllBytes(path)).asReadOnlyBuffer();
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			long size = channel.size();
+			if(map && MAP_SUPPORTED && size >= MAP_THRESHOLD)
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+			buffer.flip();
+			return buffer.asReadOnlyBuffer();
+		}
+	}
+	
+	/**Retrieves the contents of the {@link java.io.File} at the given {@link Path} as a {@link CharStream},
+	 * as a replacement for {@link org.antlr.v4.runtime.CharStreams#fromPath(Path, Charset)}.
+	 * <p/>
+	 * If the given {@link Charset} is single-byte, the returned CharStream decodes the bytes returned by
+	 * {@link FolderUtils#readFile(Path)} as they are read, instead of decoding the entire File up front.
+	 * @param path Path of the File to read
+	 * @param charset Charset that the File is encoded with
+	 * @return CharStream over the File's contents
+	 * @throws IOException iff reading the File fails
+	 * @see ByteCharStream
+	 */
+	public static CharStream readCharStream(Path path, Charset charset) throws IOException{
+		return ByteCharStream.of(readFile(path), charset, path.toString());
+	}
+	
 	/**
 	 * Resets {@link GlobalState#docsFolder} to its default value.
 	 */
@@ -48,4 +48,16 @@ public interface GameFolder{
 	 * @return Charset for Files of this GameFolder
 	 */
 	Charset getCharset();
+	
+	/**Retrieves the {@link ExtractionPlan} that compiles the properties of this GameFolder,
+	 * for use when parsing its {@link java.io.File}s.
+	 * @return ExtractionPlan of this GameFolder
+	 */
+	ExtractionPlan getExtractionPlan();
+	
+	/**Retrieves the index of this GameFolder in {@link Game#getGameFolders()}.
+	 * Implemented by enums as a matter of course.
+	 * @return the index of this GameFolder
+	 */
+	int ordinal();
 }
@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -28,9 +29,16 @@ public final class GlobalState{
 	public static boolean isDebug = true;
 	/** minimal {@link Severity} of an {@link Alert} for it to be relayed to the user*/
 	public static Severity minimalAlertSeverity = Severity.WARNING;
+	/** set to false to parse all files, rather than reusing the results stored in the {@link ParseCache}*/
+	public static boolean useParseCache = true;
+	/** {@link Analyzer}s that are run by {@link ModList#runConflictCheck()} in addition to the built-in ones*/
+	public static final List<Analyzer> analyzers = new CopyOnWriteArrayList<>();
 	
 	/** {@link Game} that is currently being inspected*/
 	public static Game game = null;//Game.CK2;
+	/** {@link SymbolTable} that interns the Names of all {@link Definition}s and {@link Mod.ModFile}s, which are
+	 * discarded whenever the last open {@link ModList} is closed*/
+	public static final SymbolTable symbols = new SymbolTable();
 	/** {@link List} of {@link Alert}s that were encountered in program execution so far.*/
     public static final List<Alert> alerts = Collections.synchronizedList(new ArrayList<>());
     /**Currently loaded {@link List} of {@link Mod}s*/
@@ -5,11 +5,14 @@ import jay.aenigma.ckii.parser.*;
 import org.antlr.v4.runtime.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import java.util.zip.ZipException;
 
 /**
  * Class that represents information about a single Mod in a {@link ModList}, including any {@link ModFile}s
@@ -21,6 +24,10 @@ public class Mod implements Closeable, AutoCloseable{
 	private final Path path;
 	private final boolean zipped;
 	private final List<String> dependencies;
+	// dense number of this Mod within its ModList
+	private int index = -1;
+	// false while the files of this Mod are watched for changes, see FolderUtils#readFile(Path, boolean)
+	private volatile boolean mapFiles = true;
 	
 	/**Creates a Mod with the given parameters, usually retrieved from a .mod file
 	 * @param name the name of the Mod, as listed in its .mod file.
@@ -38,20 +45,26 @@ public class Mod implements Closeable, AutoCloseable{
 		this.dependencies = dependencies;
 		
 		if(zipped){
-			zipFileSystem = FileSystems.newFileSystem(path, null);
-			rootPath = zipFileSystem.getRootDirectories().iterator().next(); // if there's zip files with multiple roots, I'll flip a table
+			openArchive();
 		}
 		else{
-			zipFileSystem = null;
 			rootPath = path;
 		}
 	}
 	
-	private final Set<ModFile> files = new HashSet<>();
-	private final Map<String, ModFile> modFileMap = new HashMap<>();
-	private final List<Definition> definitions = new ArrayList<>();
-	private final FileSystem zipFileSystem;
-	private final Path rootPath;
+	private static final int[] NO_ROWS = new int[0];
+	
+	// populated concurrently by FileTasks
+	private final Set<ModFile> files = ConcurrentHashMap.newKeySet();
+	private final Map<Integer, ModFile> modFileMap = new ConcurrentHashMap<>();
+	// rows of the Definitions of each ModFile by GameFolder ordinal and Name id, see getDefinitionRows(int, int)
+	private Map<Long, int[]> definitionIndex = new HashMap<>();
+	// the tasks that populated the files of this Mod, in the order the files were found in
+	private List<FileTask> fileTasks = new ArrayList<>();
+	private ZipIndex zipIndex;
+	// for zipped Mods, only opened when needed
+	private FileSystem zipFileSystem;
+	private Path rootPath;
 	
 	/**
 	 * Represents a single file in a loaded {@link Mod}.
@@ -59,8 +72,17 @@ public class Mod implements Closeable, AutoCloseable{
 	public class ModFile{
 		final Path relativePath;
 		final GameFolder gameFolder;
-		final String name;
-		final List<Definition> definitions;
+		final int name;
+		// kept as well, since the id is only valid until the session of GlobalState.symbols ends
+		private final String nameString;
+		// rows found while parsing, until they are appended to the DefinitionTable
+		DefinitionTable.FileRows rows;
+		List<Definition> definitions = List.of();
+		private int firstRow = 0;
+		private List<Alert> parseAlerts = List.of();
+		// fingerprint of the contents, once known
+		private long size = -1;
+		private byte[] digest;
 		
 		/**Creates a new ModFile representing a file at the given relative {@link Path}
 		 *  of the given {@link GameFolder}.
@@ -70,8 +92,9 @@ public class Mod implements Closeable, AutoCloseable{
 		ModFile(Path relativePath, GameFolder gameFolder){
 			this.relativePath = relativePath;
 			this.gameFolder = gameFolder;
-			this.name = relativePath.toString().replace('/','\\');
-			this.definitions = new ArrayList<>();
+			this.nameString = relativePath.toString().replace('/','\\');
+			this.name = GlobalState.symbols.intern(nameString);
+			this.rows = new DefinitionTable.FileRows();
 		}
 		
 		/**Retrieve the {@link Mod} that this ModFile is part of.
@@ -85,6 +108,14 @@ public class Mod implements Closeable, AutoCloseable{
 		 * @return this file's relative path as a standardized String
 		 */
 		public String getName(){
+			return nameString;
+		}
+		
+		/**Retrieves the id of this ModFile's name in {@link GlobalState#symbols}.
+		 * Two ModFiles have equal names iff they have equal name ids.
+		 * @return the id of the name
+		 */
+		public int getNameId(){
 			return name;
 		}
 		
@@ -106,13 +137,104 @@ public class Mod implements Closeable, AutoCloseable{
 		 * root {@link Mod#getPath()}. If the Mod is zipped, it will point inside a zipFileSystem, in which case it no longer
 		 * valid once the Mod is {@link Mod#close()}d.
 		 * @return Absolute Path to this ModFile
+		 * @throws UncheckedIOException iff the Mod is zipped and opening its zipFileSystem fails
 		 */
 		public Path getAbsolutePath(){
-			return getMod().rootPath.resolve(relativePath);
+			Path root;
+			try{
+				root = getMod().getRootPath();
+			}catch(IOException e){
+				throw new UncheckedIOException(e);
+			}
+			if(root.getFileSystem() == relativePath.getFileSystem())
+				return root.resolve(relativePath);
+			// files listed by a ZipIndex have relative Paths of the default FileSystem
+			Path absolutePath = root;
+			for(Path element : relativePath){
+				absolutePath = absolutePath.resolve(element.toString());
+			}
+			return absolutePath;
 		}
 		
+		/**Retrieves the {@link List} of {@link Definition}s found in this ModFile,
+		 * provided it was appended to a {@link DefinitionTable} previously.
+		 * @return unmodifiable List of Definitions in this ModFile
+		 */
 		public List<Definition> getDefinitions(){
-			return Collections.unmodifiableList(definitions);
+			return definitions;
+		}
+		
+		/**Appends the rows found while parsing this ModFile to the given {@link DefinitionTable},
+		 * after which they are only kept there.
+		 * @param table the DefinitionTable
+		 */
+		void appendDefinitions(DefinitionTable table){
+			firstRow = table.append(this, rows);
+			definitions = table.view(firstRow, firstRow + rows.size());
+			rows = null;
+		}
+		
+		/**Moves the {@link Definition}s of this ModFile to the given first row, after their {@link DefinitionTable}
+		 * was compacted, see {@link DefinitionTable#compact()}.
+		 * @param table the DefinitionTable
+		 * @param firstRow the new first row
+		 */
+		void moveDefinitions(DefinitionTable table, int firstRow){
+			int size = definitions.size();
+			this.firstRow = firstRow;
+			definitions = table.view(firstRow, firstRow + size);
+		}
+		
+		/**Returns true iff the rows found while parsing this ModFile were not yet appended to a
+		 * {@link DefinitionTable}.
+		 * @return true iff appendDefinitions(DefinitionTable) is pending
+		 */
+		boolean hasPendingDefinitions(){
+			return rows != null;
+		}
+		
+		/**Retrieves the first row of the {@link Definition}s of this ModFile in their {@link DefinitionTable}.
+		 * @return the first row, inclusive
+		 */
+		int getFirstRow(){
+			return firstRow;
+		}
+		
+		/**Retrieves the row after the last {@link Definition} of this ModFile in their {@link DefinitionTable}.
+		 * @return the last row, exclusive
+		 */
+		int getEndRow(){
+			return firstRow + definitions.size();
+		}
+		
+		/**Retrieves the {@link Alert}s describing the parsing errors encountered in this ModFile.
+		 * @return the List of Alerts
+		 */
+		List<Alert> getParseAlerts(){
+			return parseAlerts;
+		}
+		
+		/**Retrieves the size of this ModFile, as determined while parsing it.
+		 * @return the size in bytes, or -1 if it is not known
+		 */
+		long getSize(){
+			return size;
+		}
+		
+		/**Retrieves the {@link ParseCache#digest(ByteBuffer)} of this ModFile, as determined while parsing it.
+		 * @return the digest, which must not be modified, or null if it is not known
+		 */
+		byte[] getDigest(){
+			return digest;
+		}
+		
+		/**Returns true iff this ModFile and the given one are known to have identical contents,
+		 * i.e. equal size and digest.
+		 * @param other the other ModFile
+		 * @return true iff both files are byte-identical
+		 */
+		public boolean isIdenticalTo(ModFile other){
+			return digest != null && size == other.size && Arrays.equals(digest, other.digest);
 		}
 		
 	}
@@ -123,177 +245,457 @@ public class Mod implements Closeable, AutoCloseable{
 	 * @return the ModFile at the given Path, if it exists, null otherwise.
 	 */
 	public ModFile getModFileByName(String name){
+		int id = GlobalState.symbols.lookup(name);
+		return id >= 0 ? getModFileByName(id) : null;
+	}
+	
+	/**Retrieves the {@link ModFile} in this Mod whose name has the given id in {@link GlobalState#symbols},
+	 * if such a ModFile exists, and null otherwise.
+	 * @param name id of the String representation of the relative Path of the desired ModFile.
+	 * @return the ModFile at the given Path, if it exists, null otherwise.
+	 * @see ModFile#getNameId()
+	 */
+	public ModFile getModFileByName(int name){
 		return modFileMap.get(name);
 	}
 	
 	
-	/**Populate the {@link List}s of {@link ModFile}s and {@link Definition}s in this Mod by parsing all relevant files.
-	 * @return a List of {@link Alert}s describing all parsing errors encountered.
+	/**Lists a {@link FileTask} for each relevant file in this Mod. Together, they populate the {@link Set} of
+	 * {@link ModFile}s of this Mod, and may be run concurrently.
+	 * Their {@link Definition}s are collected afterwards, see {@link Mod#appendDefinitions(DefinitionTable)}.
+	 * @param cache the {@link ParseCache} to look up and record the results of parsing in, or null to parse all files
+	 * @param contents the {@link ContentIndex} to share the results of parsing identical files in, or null
+	 * @return the List of FileTasks, in the order the files were found in.
+	 * @throws IOException iff listing the files of any {@link GameFolder} fails.
 	 */
-	List<Alert> parseFiles(){
-		long time = System.nanoTime();
-		List<Alert> alerts = new ArrayList<>();
-		try{
-			for(GameFolder gameFolder : GlobalState.game.getGameFolders()){
-				Path folder = rootPath.resolve(gameFolder.getPath());
-				
-				if(Files.exists(folder) && Files.isReadable(folder)){
-					try(Stream<Path> pathStream = FolderUtils.getFilesInDir(folder, gameFolder.getFileNameRegex())){
-						pathStream.sequential().forEach(path -> alerts.addAll(parseFile(path, gameFolder)));
+	List<FileTask> listFileTasks(ParseCache cache, ContentIndex contents) throws IOException{
+		files.clear();
+		modFileMap.clear();
+		definitionIndex = new HashMap<>();
+		List<FileTask> tasks = new ArrayList<>();
+		fileTasks = tasks;
+		for(GameFolder gameFolder : GlobalState.game.getGameFolders()){
+			if(zipIndex != null){
+				for(ZipIndex.Entry entry : zipIndex.list(gameFolder.getPath(), gameFolder.getFileNameRegex())){
+					tasks.add(new FileTask(entry, gameFolder, cache, contents));
+				}
+				continue;
+			}
+			Path folder = getRootPath().resolve(gameFolder.getPath());
+			
+			if(Files.exists(folder) && Files.isReadable(folder)){
+				try(Stream<Path> pathStream = FolderUtils.getFilesInDir(folder, gameFolder.getFileNameRegex())){
+					pathStream.forEach(path -> tasks.add(new FileTask(path, gameFolder, cache, contents)));
+				}
+			}
+		}
+		return tasks;
+	}
+	
+	/**Lists a {@link FileTask} for each relevant file among the given {@link Path}s, which were created, modified
+	 * or deleted since this Mod was last parsed, and adds them to the given {@link List}. The {@link ModFile}s of
+	 * deleted files are removed from this Mod, while those of other files are replaced once their tasks are run. <br/>
+	 * If a folder of this Mod was created or deleted, or its archive has changed, then all of its files are listed
+	 * again, as by {@link Mod#listFileTasks(ParseCache, ContentIndex)}.
+	 * @param changedPaths the absolute Paths of the changed files and folders
+	 * @param cache the {@link ParseCache} to look up and record the results of parsing in, or null to parse all files
+	 * @param contents the {@link ContentIndex} to share the results of parsing identical files in, or null
+	 * @param tasks the List to add the FileTasks to
+	 * @param removedFiles the List to add the removed or replaced ModFiles to
+	 * @return true iff any ModFile of this Mod was added, changed or removed
+	 * @throws IOException iff listing the files of any {@link GameFolder} fails.
+	 */
+	boolean listChangedFileTasks(Collection<Path> changedPaths, ParseCache cache, ContentIndex contents,
+			List<FileTask> tasks, List<ModFile> removedFiles) throws IOException{
+		if(zipped){
+			if(!changedPaths.contains(path))
+				return false;
+			removedFiles.addAll(files);
+			close();
+			if(Files.isRegularFile(path)){
+				openArchive();
+				tasks.addAll(listFileTasks(cache, contents));
+			}
+			else{
+				files.clear();
+				modFileMap.clear();
+				fileTasks = new ArrayList<>();
+			}
+			return true;
+		}
+		
+		GameFolder[] gameFolders = GlobalState.game.getGameFolders();
+		for(Path changedPath : changedPaths){
+			if(Arrays.stream(gameFolders).anyMatch(gameFolder -> changedPath.startsWith(rootPath)
+					&& rootPath.resolve(gameFolder.getPath()).startsWith(changedPath))){
+				removedFiles.addAll(files);
+				tasks.addAll(listFileTasks(cache, contents));
+				return true;
+			}
+		}
+		
+		boolean changed = false;
+		for(Path changedPath : changedPaths){
+			if(!changedPath.startsWith(rootPath) || changedPath.getNameCount() <= rootPath.getNameCount())
+				continue;
+			Path folder = changedPath.getParent();
+			String fileName = changedPath.getFileName().toString();
+			for(GameFolder gameFolder : gameFolders){
+				if(!folder.equals(rootPath.resolve(gameFolder.getPath()))
+						|| !gameFolder.getFileNameRegex().matcher(fileName).find())
+					continue;
+				FileTask task = Files.isRegularFile(changedPath)
+						? new FileTask(changedPath, gameFolder, cache, contents) : null;
+				int index = indexOfFileTask(rootPath.relativize(changedPath), gameFolder);
+				if(index >= 0){
+					ModFile modFile = fileTasks.get(index).getModFile();
+					if(modFile != null){
+						files.remove(modFile);
+						modFileMap.remove(modFile.name, modFile);
+						removedFiles.add(modFile);
 					}
+					if(task != null)
+						fileTasks.set(index, task);
+					else
+						fileTasks.remove(index);
+					changed = true;
+				}
+				else if(task != null){
+					fileTasks.add(task);
+				}
+				if(task != null){
+					tasks.add(task);
+					changed = true;
 				}
 			}
-		} catch(IOException e){
-			e.printStackTrace();
 		}
-		time = System.nanoTime() - time;
-		time /= 1e6;
-		GlobalState.log(String.format("Parsed files for \"%s\" (%d ms)", this.getName(), time));
+		return changed;
+	}
+	
+	private int indexOfFileTask(Path relativePath, GameFolder gameFolder){
+		for(int i = 0; i < fileTasks.size(); i++){
+			FileTask task = fileTasks.get(i);
+			if(task.gameFolder == gameFolder && task.relativePath.equals(relativePath))
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Task that parses a single file of this {@link Mod}, yielding the {@link List} of {@link Alert}s
+	 * describing all parsing errors encountered.
+	 */
+	class FileTask implements Callable<List<Alert>>{
+		private final Path path;
+		private final ZipIndex.Entry entry;
+		private final Path relativePath;
+		private final GameFolder gameFolder;
+		private final ParseCache cache;
+		private final ContentIndex contents;
+		private final long size;
+		private final long modified;
+		private volatile ModFile modFile;
+		
+		/**Creates a new FileTask for the file at the given {@link Path}, and determines its size and modification time.
+		 * @param path the (absolute) Path of the File to be parsed
+		 * @param gameFolder the GameFolder of the File to be parsed
+		 * @param cache the ParseCache to use, or null
+		 * @param contents the ContentIndex to use, or null
+		 */
+		FileTask(Path path, GameFolder gameFolder, ParseCache cache, ContentIndex contents){
+			this.path = path;
+			this.entry = null;
+			this.relativePath = rootPath.relativize(path);
+			this.gameFolder = gameFolder;
+			this.cache = cache;
+			this.contents = contents;
+			long size, modified;
+			try{
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				size = attributes.size();
+				modified = attributes.lastModifiedTime().toMillis();
+			}catch(IOException e){
+				size = 0;
+				modified = -1;
+			}
+			this.size = size;
+			this.modified = modified;
+		}
+		
+		/**Creates a new FileTask for the given entry of the {@link ZipIndex} of this Mod.
+		 * @param entry the entry of the File to be parsed
+		 * @param gameFolder the GameFolder of the File to be parsed
+		 * @param cache the ParseCache to use, or null
+		 * @param contents the ContentIndex to use, or null
+		 */
+		FileTask(ZipIndex.Entry entry, GameFolder gameFolder, ParseCache cache, ContentIndex contents){
+			this.path = null;
+			this.entry = entry;
+			this.relativePath = entry.getRelativePath();
+			this.gameFolder = gameFolder;
+			this.cache = cache;
+			this.contents = contents;
+			this.size = entry.getSize();
+			this.modified = entry.getModified();
+		}
+		
+		/**Reads the contents of the file to be parsed, inflating it if it is a zip entry.
+		 * @return the contents of the file
+		 * @throws IOException iff reading the file fails
+		 */
+		ByteBuffer read() throws IOException{
+			return entry != null ? zipIndex.read(entry) : FolderUtils.readFile(path, mapFiles);
+		}
+		
+		/**Retrieves the size of the file to be parsed, as an estimate of the work required to parse it.
+		 * @return the size of the file in bytes, or 0 if it could not be determined
+		 */
+		long getSize(){
+			return size;
+		}
+		
+		/**Retrieves the {@link Mod} this task belongs to.
+		 * @return the Mod
+		 */
+		Mod getMod(){
+			return Mod.this;
+		}
+		
+		/**Retrieves the {@link GameFolder} of the file to be parsed.
+		 * @return the GameFolder
+		 */
+		GameFolder getGameFolder(){
+			return gameFolder;
+		}
+		
+		/**Retrieves the {@link ModFile} created by this task, once it has been run.
+		 * @return the ModFile, or null if the task has not been run or failed before creating it
+		 */
+		ModFile getModFile(){
+			return modFile;
+		}
+		
+		@Override
+		public List<Alert> call(){
+			ModFile modFile = new ModFile(relativePath, gameFolder);
+			modFile.parseAlerts = parseFile(this, modFile);
+			this.modFile = modFile;
+			return modFile.parseAlerts;
+		}
+	}
+	
+	/**Appends the {@link Definition}s found by the completed {@link FileTask}s of this Mod to the given
+	 * {@link DefinitionTable}, in the order the files were found in, unless they were appended before.
+	 * The rows of each {@link ModFile} are contiguous, but those of this Mod are only so after the first call.
+	 * @param table the DefinitionTable
+	 */
+	void appendDefinitions(DefinitionTable table){
+		List<ModFile> indexed = new ArrayList<>(fileTasks.size());
+		for(FileTask task : fileTasks){
+			ModFile modFile = task.getModFile();
+			if(modFile != null){
+				if(modFile.hasPendingDefinitions())
+					modFile.appendDefinitions(table);
+				indexed.add(modFile);
+			}
+		}
+		definitionIndex = table.groupByKey(indexed);
+	}
+	
+	/**Appends the {@link Definition}s found by the completed {@link FileTask}s of this Mod in the given
+	 * {@link GameFolder}s to the given {@link DefinitionTable}, in the order the files were found in, and adds them to
+	 * the index of this Mod. Files of other GameFolders need not be parsed yet, and are left as they are.
+	 * @param table the DefinitionTable
+	 * @param gameFolders the GameFolders whose files are all parsed
+	 */
+	void appendDefinitions(DefinitionTable table, Collection<GameFolder> gameFolders){
+		List<ModFile> appended = new ArrayList<>();
+		for(FileTask task : fileTasks){
+			ModFile modFile = task.getModFile();
+			if(modFile != null && gameFolders.contains(task.gameFolder) && modFile.hasPendingDefinitions()){
+				modFile.appendDefinitions(table);
+				appended.add(modFile);
+			}
+		}
+		table.groupByKey(appended).forEach((key, rows) ->
+				definitionIndex.merge(key, rows, DefinitionTable::appendRows));
+	}
+	
+	/**Retrieves the rows of the {@link Definition}s of this Mod that are equal in {@link GameFolder} and Name,
+	 * in the order their files were found in, using an index that is kept up to date whenever
+	 * {@link Mod#appendDefinitions(DefinitionTable)} appends any.
+	 * @param folder the {@link GameFolder#ordinal()} of the Definitions
+	 * @param name the id of the Name of the Definitions in {@link GlobalState#symbols}
+	 * @return the rows, which must not be modified, or an empty array if there are none
+	 */
+	int[] getDefinitionRows(int folder, int name){
+		return definitionIndex.getOrDefault(DefinitionTable.getKey(folder, name), NO_ROWS);
+	}
+	
+	/**Retrieves the {@link Alert}s describing the parsing errors encountered in the files of this Mod,
+	 * in the order the files were found in.
+	 * @return the List of Alerts
+	 */
+	List<Alert> getParseAlerts(){
+		List<Alert> alerts = new ArrayList<>();
+		for(FileTask task : fileTasks){
+			if(task.getModFile() != null)
+				alerts.addAll(task.getModFile().getParseAlerts());
+		}
 		return alerts;
 	}
 	
-	/**Generate the {@link List} of {@link Definition}s defined in the {@link File} at the given {@link Path},
-	 * by parsing said file using a matching {@link Parser}. The resulting {@link ModFile} and any encountered
-	 * Definitions are added to their respective Lists and {@link Map}s in this Mod.
-	 * @param path the (absolute) Path of the File to be parsed
-	 * @param gameFolder the GameFolder of the File to be parsed
+	/**Generate the {@link List} of {@link Definition}s defined in the {@link File} of the given {@link FileTask},
+	 * by parsing said file using a matching {@link Parser}. The given {@link ModFile} is added to the {@link Set} and
+	 * {@link Map} of this Mod, and any encountered Definitions are added to its rows. <br/>
+	 * If the {@link ParseCache} of the task holds the results for an unchanged file,
+	 * those are used instead of parsing it;
+	 * otherwise, the new results are recorded in it. Likewise, if the {@link ContentIndex} of the task holds the
+	 * results for a byte-identical file, those are shared instead.
+	 * @param task the FileTask of the File to be parsed
+	 * @param modFile the ModFile representing the File to be parsed
 	 * @return a List of {@link Alert}s describing all parsing errors encountered.
 	 */
-	private List<Alert> parseFile(Path path, GameFolder gameFolder){
+	private List<Alert> parseFile(FileTask task, ModFile modFile){
 		try{
-			final Path relativePath = rootPath.relativize(path);
-			final ModFile modFile = new ModFile(relativePath, gameFolder);
+			final ParseCache cache = task.cache;
 			files.add(modFile);
-			modFileMap.put(modFile.getName(),modFile);
-			//Main.log("\tparsing "+path.getFileName());
-
-			Pattern pattern = gameFolder.getReservedNames();
-			Predicate<String> badNamePredicate = pattern != null ? pattern.asPredicate() : String::isEmpty;
-			
-			AlertErrorListener listener = new AlertErrorListener(modFile);
+			modFileMap.put(modFile.name, modFile);
+			modFile.size = task.size;
 			
-			if(path.getFileName().toString().toLowerCase().endsWith(".csv")){
-				CkiiLocLexer lexer = new CkiiLocLexer(CharStreams.fromPath(path, gameFolder.getCharset()));
-				lexer.removeErrorListeners();
-				lexer.addErrorListener(listener);
-				CkiiLocParser parser = new CkiiLocParser(new CommonTokenStream(lexer));
-				parser.setErrorHandler(new DefaultErrorStrategy());
-				parser.removeErrorListeners();
-				parser.addErrorListener(listener);
-				CkiiLocParser.UnitContext unit = parser.unit();
-				
-				LocKeyVisitor locKeyVisitor = new LocKeyVisitor();
-				List<String> stringList = locKeyVisitor.visit(unit);
-				for(String string : stringList){
-					if(!badNamePredicate.test(string))
-						modFile.definitions.add(new Definition(string, modFile, gameFolder.getMergeBehaviour()));
+			final String key = cache != null || task.contents != null ? ParseCache.getKey(modFile) : null;
+			if(task.contents != null){
+				ContentIndex.Result shared = task.contents.getFile(key, task.size, task.modified);
+				if(shared != null){
+					modFile.digest = shared.getDigest();
+					return shared.restore(modFile);
 				}
 			}
-			else {
-				CkiiLexer lexer = new CkiiLexer(CharStreams.fromPath(path, gameFolder.getCharset()));
-				lexer.removeErrorListeners();
-				lexer.addErrorListener(listener);
-				CkiiParser parser = new CkiiParser(new CommonTokenStream(lexer));
-				parser.setErrorHandler(new DefaultErrorStrategy());
-				parser.removeErrorListeners();
-				parser.addErrorListener(listener);
-				CkiiParser.UnitContext unit = parser.unit();
-				
-				switch(gameFolder.getNamingType()){
-					case TOP_LEVEL:
-						TopLevelNameVisitor topLevelNameVisitor = new TopLevelNameVisitor();
-						List<String> strings = topLevelNameVisitor.visit(unit);
-						for(String string : strings){
-							if(!badNamePredicate.test(string))
-								modFile.definitions.add(new Definition(string, modFile, gameFolder.getMergeBehaviour()));
-						}
-						break;
-					case SECOND_LEVEL:
-						MergeBehaviour mergeBehaviour = gameFolder.getMergeBehaviour();
-						if(mergeBehaviour == MergeBehaviour.MERGE_GROUPS){
-							topLevelNameVisitor = new TopLevelNameVisitor();
-							List<String> strings1 = topLevelNameVisitor.visit(unit);
-							for(String string : strings1){
-								if(!badNamePredicate.test(string))
-									modFile.definitions.add(new Definition(string, modFile, mergeBehaviour));
-							}
-							mergeBehaviour = MergeBehaviour.REPLACE;
-						}
-						SecondLevelNameVisitor secondLevelNameVisitor = new SecondLevelNameVisitor();
-						List<String> list = secondLevelNameVisitor.visit(unit);
-						for(String string : list){
-							if(!badNamePredicate.test(string))
-								modFile.definitions.add(new Definition(string, modFile, mergeBehaviour));
-						}
-						break;
-					case PREFIX_ANY_LEVEL:
-						TitleNameVisitor titleNameVisitor = new TitleNameVisitor();
-						List<String> stringList = titleNameVisitor.visit(unit);
-						for(String string : stringList){
-							if(!badNamePredicate.test(string))
-								modFile.definitions.add(new Definition(string, modFile, gameFolder.getMergeBehaviour()));
-						}
-						break;
-					case ID_FIELD:
-						TopLevelIdFieldNameVisitor topLevelIdFieldNameVisitor = new TopLevelIdFieldNameVisitor();
-						topLevelIdFieldNameVisitor.target = gameFolder.getIdField();
-						List<String> visit = topLevelIdFieldNameVisitor.visit(unit);
-						for(String string : visit){
-							if(!badNamePredicate.test(string))
-								modFile.definitions.add(new Definition(string, modFile, gameFolder.getMergeBehaviour()));
-						}
-						break;
-					case SECOND_LEVEL_ID_FIELD:
-						SecondLevelIdFieldNameVisitor secondLevelIdFieldNameVisitor = new SecondLevelIdFieldNameVisitor();
-						secondLevelIdFieldNameVisitor.target = gameFolder.getIdField();
-						List<String> visit1 = secondLevelIdFieldNameVisitor.visit(unit);
-						for(String string : visit1){
-							if(!badNamePredicate.test(string))
-								modFile.definitions.add(new Definition(string, modFile, gameFolder.getMergeBehaviour()));
-						}
-						break;
-					case ANY_LEVEL_ID_FIELD:
-						AnyLevelIdFieldNameVisitor anyLevelIdFieldNameVisitor = new AnyLevelIdFieldNameVisitor();
-						anyLevelIdFieldNameVisitor.target = gameFolder.getIdField();
-						List<String> strings1 = anyLevelIdFieldNameVisitor.visit(unit);
-						for(String string : strings1){
-							if(!badNamePredicate.test(string))
-								modFile.definitions.add(new Definition(string, modFile, gameFolder.getMergeBehaviour()));
-						}
-						break;
-				}
+			final ParseCache.Entry cached = cache != null ? cache.get(key) : null;
+			if(cached != null && cached.matches(task.size, task.modified)){
+				cache.countHit();
+				modFile.digest = cached.digest;
+				List<Alert> alerts = cached.restore(modFile, modFile.rows);
+				if(task.contents != null)
+					task.contents.putFile(key, task.size, task.modified, new ContentIndex.Result(modFile, alerts));
+				return alerts;
 			}
-			definitions.addAll(modFile.definitions);
-			return listener.getAlerts();
+			
+			final ByteBuffer bytes = task.read();
+			modFile.digest = ParseCache.digest(bytes);
+			final boolean localisation = task.relativePath.getFileName().toString().toLowerCase().endsWith(".csv");
+			final boolean unchanged = cached != null && cached.matchesContent(task.size, modFile.digest);
+			Callable<ContentIndex.Result> parser = unchanged
+					? () -> new ContentIndex.Result(modFile, cached.restore(modFile, modFile.rows))
+					: () -> new ContentIndex.Result(modFile, parseContents(modFile, localisation, bytes));
+			
+			ContentIndex.Result result = task.contents != null
+					? task.contents.get(modFile, localisation, parser) : parser.call();
+			List<Alert> alerts = result.restore(modFile);
+			if(task.contents != null)
+				task.contents.putFile(key, task.size, task.modified, result);
+			if(unchanged){
+				cache.countHit();
+				cache.put(key, cached.withModified(task.modified));
+			}
+			else if(cache != null)
+				cache.put(key, new ParseCache.Entry(task.size, task.modified, modFile.digest, modFile.rows, alerts));
+			return alerts;
 		}catch(Exception e){
 			e.printStackTrace();
 			return new ArrayList<>();
 		}
 	}
 	
+	/**Generate the {@link List} of {@link Definition}s defined in the given contents of the given {@link ModFile}
+	 * by parsing them using a matching {@link Parser}, and adds them to the rows of the ModFile.
+	 * @param modFile the ModFile representing the File to be parsed
+	 * @param localisation true iff the File is a localisation file
+	 * @param bytes the contents of the File
+	 * @return a List of {@link Alert}s describing all parsing errors encountered.
+	 */
+	private List<Alert> parseContents(ModFile modFile, boolean localisation, ByteBuffer bytes){
+		//Main.log("\tparsing "+path.getFileName());
+		final ExtractionPlan plan = modFile.getGameFolder().getExtractionPlan();
+		final ExtractionPlan.DefinitionSink sink = (name, mergeBehaviour) ->
+				modFile.rows.add(name, mergeBehaviour);
+		
+		final ParserPool parserPool = ParserPool.forCurrentThread();
+		List<Alert> alerts = List.of();
+		
+		if(localisation){
+			// as for script files, only malformed localisation files are parsed with ANTLR
+			if(!plan.isSingleByte()
+					|| !parserPool.scanLocalisation(bytes, plan.getCharset(), name -> plan.defineName(name, sink))){
+				modFile.rows.clear();
+				AlertErrorListener listener = new AlertErrorListener(modFile);
+				List<String> stringList = parserPool.visitLocalisation(
+						ByteCharStream.of(bytes, plan.getCharset(), modFile.getName()), listener, new LocKeyVisitor());
+				for(String string : stringList){
+					plan.defineName(string, sink);
+				}
+				alerts = listener.getAlerts();
+			}
+		}
+		else if(plan.isSingleByte()){
+			// well-formed files are extracted without a parse tree; others are re-parsed for error recovery
+			if(!parserPool.streamScript(bytes, plan.getCharset(), plan.newDefinitionHandler(sink))){
+				modFile.rows.clear();
+				AlertErrorListener listener = new AlertErrorListener(modFile);
+				parserPool.visitScript(bytes, plan.getCharset(), modFile.getName(), listener,
+						new ScriptTreeWalker(plan.newDefinitionHandler(sink)));
+				alerts = listener.getAlerts();
+			}
+		}
+		else {
+			AlertErrorListener listener = new AlertErrorListener(modFile);
+			parserPool.visitScript(ByteCharStream.of(bytes, plan.getCharset(), modFile.getName()), listener,
+					new ScriptTreeWalker(plan.newDefinitionHandler(sink)));
+			alerts = listener.getAlerts();
+		}
+		return alerts;
+	}
+	
 	/**Creates a new {@link Mod} instance by parsing the *.mod {@link File} at the relative {@link Path}
 	 * represented by modFile.
+	 * @param userDataFolder the Path that modFile, and the path of the Mod within it, are relative to,
+	 *                       usually {@link Game#getUserDataFolder(Path)}
 	 * @param modFile {@link String} representation of the relative Path of the *.mod file to be loaded.
 	 * @return a new Mod instance representing the contents of the File at the given Path.
 	 * @throws IOException iff loading the File at the given Path fails for any reason.
 	 */
-	static Mod load(String modFile) throws IOException{
-		Path userDataFolder = GlobalState.game.getUserDataFolder(GlobalState.docsFolder);
+	static Mod load(Path userDataFolder, String modFile) throws IOException{
 		Path path = userDataFolder.resolve(modFile);
 		File file = path.toFile();
 	
 		FileReader fileReader = new FileReader(file);
-		CkiiLexer lexer = new CkiiLexer(CharStreams.fromReader(fileReader));
-		CkiiParser parser = new CkiiParser(new CommonTokenStream(lexer));
-		parser.setErrorHandler(new DefaultErrorStrategy());
-		CkiiParser.UnitContext unit = parser.unit();
-		
 		ModFileVisitor visitor = new ModFileVisitor();
-		List<String> visit = visitor.visit(unit);
+		List<String> visit = ParserPool.forCurrentThread()
+				.visitScript(CharStreams.fromReader(fileReader), null, visitor);
 		
 		return new Mod(visitor.getName(), userDataFolder.resolve(visitor.getPath()), visitor.isZipped(), visit);
 	}
 	
+	/**Retrieves the index of this Mod in the {@link ModList} it was loaded by, see {@link ModList#getValues()}.
+	 * Mods are numbered densely, starting at 0 with the vanilla Mod.
+	 * @return the index of this Mod
+	 */
+	int getIndex(){
+		return index;
+	}
+	
+	void setIndex(int index){
+		this.index = index;
+	}
+	
+	/**Sets whether large files of this Mod may be memory-mapped while parsing them, see
+	 * {@link FolderUtils#readFile(Path, boolean)}. They should not be while the files are watched for changes.
+	 * @param mapFiles true iff files may be memory-mapped
+	 */
+	void setMapFiles(boolean mapFiles){
+		this.mapFiles = mapFiles;
+	}
+	
 	/**Retrieves the Name of this Mod, as defined in its *.mod File.
 	 * @return the Name of the Mod
 	 */
@@ -310,6 +712,36 @@ public class Mod implements Closeable, AutoCloseable{
 		return path;
 	}
 	
+	/**Opens the archive of this zipped Mod, preferably as a {@link ZipIndex}, or as a zip
+	 * {@link java.nio.file.FileSystem} if it cannot be read by one.
+	 * @throws IOException iff the archive cannot be opened either way
+	 */
+	private void openArchive() throws IOException{
+		try{
+			zipIndex = ZipIndex.open(path);
+		}catch(ZipException e){
+			GlobalState.log(String.format("Reading \"%s\" as a zip file system instead: %s", path, e.getMessage()));
+			zipIndex = null;
+			getRootPath();
+		}
+	}
+	
+	/**Retrieves the {@link Path} that the relative Paths of this Mod's {@link ModFile}s are resolved against. <br/>
+	 * If this Mod {@link Mod#isZipped()}, then the zip {@link java.nio.file.FileSystem} representing the contents
+	 * of the archive is opened on first use, and the returned Path will become invalid once this Mod is
+	 * {@link Mod#close()}d. Parsing a zipped Mod does not require it, unless the archive cannot be read by a
+	 * {@link ZipIndex}.
+	 * @return the root Path of this Mod's files
+	 * @throws IOException iff the Mod is zipped and its archive cannot be opened
+	 */
+	synchronized Path getRootPath() throws IOException{
+		if(rootPath == null){
+			zipFileSystem = FileSystems.newFileSystem(path, null);
+			rootPath = zipFileSystem.getRootDirectories().iterator().next(); // if there's zip files with multiple roots, I'll flip a table
+		}
+		return rootPath;
+	}
+	
 	/**Returns true iff this Mod's Files reside inside a zip archive. <br/>
 	 * If true, then {@link Mod#close()}ing this Mod will
 	 * close the {@link java.nio.file.FileSystem} representing the contents of the archive,
@@ -332,7 +764,7 @@ public class Mod implements Closeable, AutoCloseable{
 	}
 	
 	/**Retrieves the {@link Set} of {@link ModFile}s belonging to this Mod,
-	 * provided {@link Mod#parseFiles()} was called on this Mod previously.
+	 * provided its {@link Mod#listFileTasks(ParseCache, ContentIndex)} were run previously.
 	 * @return Set of ModFiles belonging to this Mod
 	 */
 	public Set<ModFile> getFiles(){
@@ -340,22 +772,34 @@ public class Mod implements Closeable, AutoCloseable{
 	}
 	
 	/**Retrieves the {@link List} of {@link Definition}s belonging to this Mod,
-	 * provided {@link Mod#parseFiles()} was called on this Mod previously.
-	 * @return List of Definitions belonging to this Mod
+	 * provided they were appended to a {@link DefinitionTable} previously.
+	 * @return unmodifiable List of Definitions belonging to this Mod
 	 */
 	public List<Definition> getDefinitions(){
-		return definitions;
+		List<Definition> definitions = new ArrayList<>();
+		for(FileTask task : fileTasks){
+			if(task.getModFile() != null)
+				definitions.addAll(task.getModFile().getDefinitions());
+		}
+		return Collections.unmodifiableList(definitions);
 	}
 	
-	/**Closes this Mod. If this Mod {@link Mod#isZipped()}, then the {@link java.nio.file.FileSystem}
-	 * representing the Mod Archive's contents is closed, rendering any {@link Path} to {@link ModFile}s within invalid.
+	/**Closes this Mod. If this Mod {@link Mod#isZipped()}, then its {@link ZipIndex} and the
+	 * {@link java.nio.file.FileSystem} representing the Mod Archive's contents, if opened, are closed,
+	 * rendering any {@link Path} to {@link ModFile}s within invalid.
 	 * @see java.nio.file.FileSystem#close()
 	 * @throws IOException iff closing the FileSystem throws any
 	 */
 	@Override
-	public void close() throws IOException{
+	public synchronized void close() throws IOException{
+		if(zipIndex != null){
+			zipIndex.close();
+			zipIndex = null;
+		}
 		if(zipFileSystem != null){
 			zipFileSystem.close();
+			zipFileSystem = null;
+			rootPath = null;
 		}
 	}
 }
@@ -1,24 +1,22 @@
 package jay.aenigma;
 
-import jay.aenigma.ckii.parser.CkiiLexer;
-import jay.aenigma.ckii.parser.CkiiParser;
 import jay.aenigma.ckii.parser.CkiiVisitor;
 import jay.aenigma.ckii.parser.ModListVisitor;
+import jay.aenigma.ckii.parser.ParserPool;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.DefaultErrorStrategy;
 
 /**
  * Class that represents the list of currently loaded mods. <br/>
@@ -27,29 +25,165 @@ import org.antlr.v4.runtime.DefaultErrorStrategy;
  */
 public class ModList implements Closeable{
 	
+	/** Name of the product of the built-in {@link Analyzer} that resolves the dependencies between the {@link Mod}s,
+	 * see {@link ModList#isTrueDependency(Mod, Mod)} and {@link ModList#getDependers(Mod)}*/
+	public static final String DEPENDENCIES = "dependencies";
+	/** Name of the product of the built-in {@link Analyzer} that parses the files of all {@link Mod}s,
+	 * i.e. the {@link jay.aenigma.Mod.ModFile}s and the {@link DefinitionTable}*/
+	public static final String DEFINITIONS = "definitions";
+	/** Name of the product of the built-in {@link Analyzer} that maps each file name to the {@link Mod}s
+	 * containing it*/
+	public static final String FILE_NAMES = "file names";
+	/** Name of the product of the built-in {@link Analyzer} that determines which files are shadowed*/
+	public static final String FILE_SHADOWING = "file shadowing";
+	/** Name of the product of the built-in {@link Analyzer} that determines which {@link Definition}s are shadowed*/
+	public static final String DEFINITION_SHADOWING = "definition shadowing";
+	/** Name of the product of the built-in {@link Analyzer} that groups {@link Definition}s by Name and
+	 * {@link GameFolder}*/
+	public static final String DEFINITION_GROUPS = "definition groups";
+	/** Name of the product of the built-in {@link Analyzer} that finds File Name Conflicts*/
+	public static final String FILE_CONFLICTS = "file conflicts";
+	/** Name of the product of the built-in {@link Analyzer} that finds {@link Definition} conflicts*/
+	public static final String DEFINITION_CONFLICTS = "definition conflicts";
+	
+	// parses all files, and checks each folder for conflicts as soon as all of its files are parsed, see checkFolder
+	private static final Analyzer PARSING = Analyzer.of("parsing and conflict detection", Set.of(DEPENDENCIES),
+			Set.of(DEFINITIONS, FILE_NAMES, FILE_SHADOWING, DEFINITION_SHADOWING, DEFINITION_GROUPS,
+					FILE_CONFLICTS, DEFINITION_CONFLICTS), modList -> {
+		modList.parseAllModFiles();
+		List<Alert> alerts = new ArrayList<>();
+		for(Mod mod : modList.mods){
+			alerts.addAll(mod.getParseAlerts());
+		}
+		alerts.addAll(modList.undefineAlerts.values());
+		alerts.addAll(modList.fileConflictAlerts.values());
+		alerts.addAll(modList.nameConflictAlerts.values());
+		return alerts;
+	});
+	// their Alerts are collected in this order, see getAlerts()
+	private static final List<Analyzer> BUILT_IN_ANALYZERS = List.of(
+			Analyzer.of("dependency resolution", Set.of(), Set.of(DEPENDENCIES), modList -> {
+				modList.resolveTrueDependencies();
+				modList.computeDependers();
+				return List.of();
+			}),
+			PARSING
+	);
+	private static final Set<String> BUILT_IN_PRODUCTS = BUILT_IN_ANALYZERS.stream()
+			.flatMap(analyzer -> analyzer.getOutputs().stream())
+			.collect(Collectors.toUnmodifiableSet());
+	private static final Comparator<Mod.FileTask> LARGEST_FIRST =
+			Comparator.comparingLong(Mod.FileTask::getSize).reversed();
+	private static final Comparator<Mod.ModFile> FIRST_ROW_FIRST = Comparator.comparingInt(Mod.ModFile::getFirstRow);
 	
 	private final List<Mod> mods;
+	// the folder of the Settings File, which the *.mod Files and the parse cache are in
+	private final Path userDataFolder;
 	private Mod vanilla;
-	private Map<String, List<Mod>> fileToModsMap;
-	private Map<String, List<Definition>> definitionsMap;
-	private Map<Mod, Set<Mod>> trueDependencies;
-	private Map<Mod, Set<Mod>> dependerMap;
+	// the following are kept up to date by update(Collection)
+	private Map<Integer, List<Mod>> fileToModsMap;
+	private DefinitionTable definitionTable;
+	// all current definitions, by their key in the definition table
+	private Map<Long, DefinitionGroup> definitionGroups;
+	// bitsets over the indices of the Mods, see Mod#getIndex()
+	private long[][] trueDependencies;
+	// the Mods that depend on each Mod, in the order of this ModList
+	private List<List<Mod>> dependers;
 	private Set<Mod.ModFile> unShadowedFiles;
-	private Set<Definition> unShadowedDefinitions;
+	private BitSet unShadowedDefinitions;
 	private Map<Mod.ModFile, Set<Mod.ModFile>> shadowingFiles;
-	private Map<Definition, Set<Definition>> shadowingDefinitions;
+	private Map<Integer, int[]> shadowingDefinitions;
+	// current alerts, by the file name id, row and definition key they concern
+	private Map<Integer, Alert> fileConflictAlerts;
+	private SortedMap<Integer, Alert> undefineAlerts;
+	private SortedMap<Long, Alert> nameConflictAlerts;
+	// the additional analyzers of the last conflict check, and their current alerts
+	private List<Analyzer> analyzers = List.of();
+	private Map<Analyzer, List<Alert>> analyzerAlerts = new LinkedHashMap<>();
+	// receives the Alerts of the conflict check in progress as soon as they are found, if any
+	private volatile SubmissionPublisher<Alert> alertPublisher;
+	// kept to look up changed files in, and saved once this ModList is closed
+	private ParseCache parseCache;
+	private boolean parseCacheChanged = false;
+	// whether this ModList opened a session of GlobalState.symbols, which it keeps open until it is closed
+	private boolean symbolSession = false;
+	// shared with other ModLists by a ModListBatch, which loads and saves the ParseCache, or null if not
+	private final ContentIndex sharedContents;
+	private final ParseCache sharedParseCache;
+	
+	/**
+	 * The rows of all {@link Definition}s that are equal in Name and {@link GameFolder}, in ascending order,
+	 * together with the number of distinct file names among them. Immutable, and replaced whenever the rows change.
+	 */
+	private static final class DefinitionGroup{
+		final int[] rows;
+		final int fileNames;
+		
+		DefinitionGroup(int[] rows, DefinitionTable table){
+			this.rows = rows;
+			this.fileNames = rows.length == 1 ? 1
+					: (int) Arrays.stream(rows).map(row -> table.getFile(row).getNameId()).distinct().count();
+		}
+		
+		private DefinitionGroup(int[] rows, int fileNames){
+			this.rows = rows;
+			this.fileNames = fileNames;
+		}
+		
+		/**Maps the rows of this group to their new rows after {@link DefinitionTable#compact()}.
+		 * @param newRows the new row of each previous row
+		 * @return a new DefinitionGroup
+		 */
+		DefinitionGroup moveRows(int[] newRows){
+			return new DefinitionGroup(ModList.moveRows(rows, newRows), fileNames);
+		}
+	}
+	
+	/**
+	 * The {@link jay.aenigma.Mod.FileTask}s of all {@link Mod}s for the files in a single folder, i.e. those of all
+	 * {@link GameFolder}s of equal path. Files of equal name, and {@link Definition}s of equal key, are always in the
+	 * same FolderGroup, so that each FolderGroup can be checked for conflicts on its own once its files are parsed.
+	 */
+	private static final class FolderGroup{
+		final Set<GameFolder> gameFolders = new HashSet<>();
+		// in the order of the Mods, and of the files within each Mod
+		final List<Mod.FileTask> tasks = new ArrayList<>();
+		final AtomicInteger pendingTasks = new AtomicInteger();
+		long size = 0;
+		
+		void add(Mod.FileTask task){
+			gameFolders.add(task.getGameFolder());
+			tasks.add(task);
+			pendingTasks.incrementAndGet();
+			size += task.getSize();
+		}
+	}
 	
 	/** Creates a new {@link ModList} containing the {@link Mod}s referenced by the Settings File at the given Path.
+	 * The *.mod Files of the Mods are looked up relative to the folder of the Settings File.
 	 * @see ModList#getMods(Path)
 	 * @param settingsFile Path to the Settings file that contains the list of mods.
 	 * @throws IOException if reading the Settings File fails for any reason.
 	 */
 	public ModList(Path settingsFile) throws IOException{
-		mods = getMods(settingsFile);
+		this(settingsFile, null, null);
 	}
 	
-	private void setTrueDependencies(Mod dependerMod, Collection<Mod> dependeeMods){
-		trueDependencies.put(dependerMod, Set.copyOf(dependeeMods));
+	/** Creates a new {@link ModList} containing the {@link Mod}s referenced by the Settings File at the given Path,
+	 * which shares the results of parsing files with other ModLists through the given {@link ContentIndex} and
+	 * {@link ParseCache}, see {@link ModListBatch}. The ParseCache is neither loaded nor saved by this ModList.
+	 * Since the ContentIndex keeps the ids of Names, whoever shares it must keep a session of
+	 * {@link GlobalState#symbols} open for as long as it does, see {@link SymbolTable#openSession()}.
+	 * @param settingsFile Path to the Settings file that contains the list of mods.
+	 * @param contents the ContentIndex to share, or null for one of its own
+	 * @param parseCache the ParseCache to share, or null for none; only used if contents is not null
+	 * @throws IOException if reading the Settings File fails for any reason.
+	 */
+	ModList(Path settingsFile, ContentIndex contents, ParseCache parseCache) throws IOException{
+		userDataFolder = settingsFile.toAbsolutePath().getParent();
+		sharedContents = contents;
+		sharedParseCache = parseCache;
+		mods = getMods(settingsFile);
 	}
 	
 	/** Returns an unmodifiable {@link Set} containing all direct and indirect dependencies of
@@ -58,7 +192,12 @@ public class ModList implements Closeable{
 	 * @return unmodifiable Set of dependencies of dependerMod
 	 */
 	Set<Mod> getTrueDependencies(Mod dependerMod){
-		return trueDependencies.get(dependerMod);
+		Set<Mod> dependencies = new HashSet<>();
+		long[] bits = trueDependencies[dependerMod.getIndex()];
+		for(int index = nextSetBit(bits, 0); index >= 0; index = nextSetBit(bits, index + 1)){
+			dependencies.add(mods.get(index));
+		}
+		return Collections.unmodifiableSet(dependencies);
 	}
 	
 	/** Returns true iff the given {@link Mod} dependeeMod is a direct or indirect dependency of dependerMod,
@@ -68,86 +207,152 @@ public class ModList implements Closeable{
 	 * @return true iff the dependency exists
 	 */
 	boolean isTrueDependency(Mod dependerMod, Mod dependeeMod){
-		return trueDependencies.containsKey(dependerMod) && trueDependencies.get(dependerMod).contains(dependeeMod);
+		return trueDependencies != null && getBit(trueDependencies[dependerMod.getIndex()], dependeeMod.getIndex());
 	}
 	
-	void computeDependerMap(){
-		dependerMap = new HashMap<>(mods.size());
-		for(Mod mod : mods){
-			for(Mod mod1 : mods){
-				if(mod != mod1 && isTrueDependency(mod1, mod)){
-					if(!dependerMap.containsKey(mod)){
-						dependerMap.put(mod, new HashSet<>());
-					}
-					dependerMap.get(mod).add(mod1);
-				}
+	/** Returns the {@link List} of all {@link Mod}s in this ModList that directly or indirectly depend on
+	 * the given Mod, other than the Mod itself, in the order of this ModList.
+	 * @param dependeeMod the Mod that is depended on
+	 * @return unmodifiable List of Mods depending on dependeeMod
+	 */
+	List<Mod> getDependers(Mod dependeeMod){
+		return dependers.get(dependeeMod.getIndex());
+	}
+	
+	/**
+	 * Generates the {@link List}s of Mods that depend on each {@link Mod},
+	 * by transposing {@link ModList#trueDependencies}.
+	 */
+	void computeDependers(){
+		int n = mods.size();
+		long[][] dependerBits = new long[n][trueDependencies[0].length];
+		for(int depender = 0; depender < n; depender++){
+			long[] bits = trueDependencies[depender];
+			for(int dependee = nextSetBit(bits, 0); dependee >= 0; dependee = nextSetBit(bits, dependee + 1)){
+				if(dependee != depender)
+					setBit(dependerBits[dependee], depender);
+			}
+		}
+		dependers = new ArrayList<>(n);
+		for(int dependee = 0; dependee < n; dependee++){
+			List<Mod> list = new ArrayList<>();
+			long[] bits = dependerBits[dependee];
+			for(int depender = nextSetBit(bits, 0); depender >= 0; depender = nextSetBit(bits, depender + 1)){
+				list.add(mods.get(depender));
 			}
+			dependers.add(List.copyOf(list));
 		}
 	}
 	
-	void computeFileShadowing(){
-		unShadowedFiles = new HashSet<>();
-		shadowingFiles = new HashMap<>();
-		for(Mod mod : mods){
-			for(Mod.ModFile file : mod.getFiles()){
-				if(!dependerMap.containsKey(file.getMod())){
-					unShadowedFiles.add(file);
-				} else{
-					Set<Mod.ModFile> fileSet = dependerMap.get(file.getMod()).stream()
-							.map(mod1 -> mod1.getModFileByName(file.name))
-							.filter(Objects::nonNull)
-							.collect(Collectors.toSet());
-					if(fileSet.isEmpty()){
-						unShadowedFiles.add(file);
-					} else {
-						shadowingFiles.put(file, fileSet);
-					}
-				}
+	private static boolean getBit(long[] bits, int index){
+		return (bits[index >>> 6] & 1L << index) != 0;
+	}
+	
+	private static void setBit(long[] bits, int index){
+		bits[index >>> 6] |= 1L << index;
+	}
+	
+	private static int nextSetBit(long[] bits, int from){
+		int i = from >>> 6;
+		if(i >= bits.length)
+			return -1;
+		long word = bits[i] & -1L << from;
+		while(word == 0){
+			if(++i == bits.length)
+				return -1;
+			word = bits[i];
+		}
+		return (i << 6) + Long.numberOfTrailingZeros(word);
+	}
+	
+	/**Determines the {@link Set} of {@link jay.aenigma.Mod.ModFile}s of equal name in {@link Mod}s that depend on
+	 * the Mod of the given ModFile, and records the given file as either shadowed by those or unshadowed.
+	 * @param file the ModFile
+	 * @return true iff the Set of shadowing ModFiles changed since the given file was last recorded
+	 */
+	private boolean shadowFile(Mod.ModFile file){
+		Set<Mod.ModFile> fileSet = null;
+		if(!getDependers(file.getMod()).isEmpty()){
+			fileSet = getDependers(file.getMod()).stream()
+					.map(mod1 -> mod1.getModFileByName(file.name))
+					.filter(Objects::nonNull)
+					.collect(Collectors.toSet());
+			if(fileSet.isEmpty()){
+				fileSet = null;
 			}
 		}
+		Set<Mod.ModFile> previous = shadowingFiles.remove(file);
+		if(fileSet == null){
+			unShadowedFiles.add(file);
+		} else {
+			unShadowedFiles.remove(file);
+			shadowingFiles.put(file, fileSet);
+		}
+		return !Objects.equals(previous, fileSet);
 	}
 	
-	List<Alert> computeDefinitionShadowing(){
-		List<Alert> alerts = new ArrayList<>();
-		unShadowedDefinitions = new HashSet<>();
-		shadowingDefinitions = new HashMap<>();
+	/**Determines whether the {@link Definition} in the given row of the {@link DefinitionTable} is unshadowed,
+	 * shadowed by equivalent Definitions, or deleted by shadowing files without any, and records it accordingly.
+	 * @param row the row of the Definition
+	 * @return an {@link Alert} of {@link Alert.Kind#UNDEFINE} iff the Definition was deleted, or null otherwise
+	 */
+	private Alert shadowDefinition(int row){
+		DefinitionTable table = definitionTable;
+		Mod.ModFile file = table.getFile(row);
+		Set<Mod.ModFile> fileSet = shadowingFiles.get(file);
+		shadowingDefinitions.remove(row);
+		if(fileSet == null || fileSet.isEmpty()){
+			unShadowedDefinitions.set(row);
+			return null;
+		}
+		unShadowedDefinitions.clear(row);
+		int[] definitionRows = findEquivalentRows(row, getDependers(file.getMod()));
+		if(definitionRows.length == 0){
+			Definition definition = table.get(row);
+			List<Mod.ModFile> modFiles = new ArrayList<>(fileSet.size()+1);
+			modFiles.add(definition.getFile());
+			modFiles.addAll(fileSet);
+			return new Alert(Severity.WARNING,
+					Alert.Kind.UNDEFINE,
+					definition.getGameFolder(),
+					modFiles,
+					definition.getName(),
+					String.format("An instance of type %s\n with name \"%s\"\n was deleted in some overwriting file(s).",
+							definition.getGameFolder().toString(), definition.getName())
+			);
+		}
+		shadowingDefinitions.put(row, definitionRows);
+		return null;
+	}
+	
+	/**Finds the rows of all {@link Definition}s of the given {@link Mod}s that are equal in Name and {@link GameFolder}
+	 * to the Definition in the given row of the {@link DefinitionTable}, by looking them up in the index of each Mod.
+	 * @param row the row of the Definition to compare with
+	 * @param mods the Mods whose Definitions are to be looked up
+	 * @return the rows of the equivalent Definitions
+	 * @see Mod#getDefinitionRows(int, int)
+	 */
+	private int[] findEquivalentRows(int row, Collection<Mod> mods){
+		DefinitionTable table = definitionTable;
+		int name = table.getName(row);
+		int folder = table.getFolder(row);
+		int[] rows = new int[0];
 		for(Mod mod : mods){
-			if(dependerMap.containsKey(mod)){
-				Set<Mod> mods = dependerMap.get(mod);
-				for(Definition definition : mod.getDefinitions()){
-					Set<Mod.ModFile> fileSet = shadowingFiles.get(definition.getFile());
-					if(fileSet == null || fileSet.isEmpty()){
-						unShadowedDefinitions.add(definition);
-					}
-					else{
-						Set<Definition> definitionSet = mods.stream()
-								.flatMap(mod1 -> mod1.getDefinitions().stream())
-								.filter(definition::isEquivalent)
-								.collect(Collectors.toSet());
-						if(definitionSet.isEmpty()){
-							List<Mod.ModFile> modFiles = new ArrayList<>(fileSet.size()+1);
-							modFiles.add(definition.getFile());
-							modFiles.addAll(fileSet);
-							alerts.add(new Alert(Severity.WARNING,
-									Alert.Kind.UNDEFINE,
-									definition.getGameFolder(),
-									modFiles,
-									definition.getName(),
-									String.format("An instance of type %s\n with name \"%s\"\n was deleted in some overwriting file(s).",
-											definition.getGameFolder().toString(), definition.getName())
-							));
-						}
-						else {
-							shadowingDefinitions.put(definition, definitionSet);
-						}
-					}
-				}
-			}
-			else {
-				unShadowedDefinitions.addAll(mod.getDefinitions());
-			}
+			int[] modRows = mod.getDefinitionRows(folder, name);
+			if(modRows.length > 0)
+				rows = DefinitionTable.appendRows(rows, modRows);
+		}
+		return rows;
+	}
+	
+	/** Sets whether large files of the {@link Mod}s of this ModList may be memory-mapped while parsing them,
+	 * see {@link Mod#setMapFiles(boolean)}.
+	 * @param mapFiles true iff files may be memory-mapped, false while they are watched for changes
+	 */
+	void setMapFiles(boolean mapFiles){
+		for(Mod mod : mods){
+			mod.setMapFiles(mapFiles);
 		}
-		return alerts;
 	}
 	
 	/** Retrieves the unmodifiable {@link List} of {@link Mod}s represented by this ModList.
@@ -158,33 +363,327 @@ public class ModList implements Closeable{
 	}
 	
 	/** Performs all steps necessary to calculate all conflicts withing this ModList. <br/>
+	 * Each step is performed by an {@link Analyzer}: the built-in ones, followed by those in
+	 * {@link GlobalState#analyzers}. They are run by an {@link AnalyzerPipeline} on the
+	 * {@link GlobalState#backgroundExecutor}, so that steps that do not depend on each other run concurrently. <br/>
 	 * Returns a {@link List} containing an {@link Alert} for each conflict or parse error encountered.
 	 * @return List of all Alerts encountered.
 	 */
 	public List<Alert> runConflictCheck(){
+		return runConflictCheck(null);
+	}
+	
+	/** Performs all steps necessary to calculate all conflicts withing this ModList, as by
+	 * {@link ModList#runConflictCheck()}, while publishing each {@link Alert} to the given {@link Flow.Subscriber}
+	 * as soon as it is found: the parse errors of each file once it is parsed, and the Alerts of each other
+	 * {@link Analyzer} once it is done. <br/>
+	 * The Subscriber is completed once all Alerts are published, or receives the exception that failed the check.
+	 * Alerts are buffered for it, but a Subscriber that falls behind by more than {@link Flow#defaultBufferSize()}
+	 * Alerts blocks the check until it catches up.
+	 * @param subscriber the Subscriber to publish Alerts to, or null
+	 * @return List of all Alerts encountered, in the same order as by runConflictCheck()
+	 */
+	public synchronized List<Alert> runConflictCheck(Flow.Subscriber<? super Alert> subscriber){
+		if(!symbolSession){
+			GlobalState.symbols.openSession();
+			symbolSession = true;
+		}
+		SubmissionPublisher<Alert> publisher = null;
+		if(subscriber != null){
+			publisher = new SubmissionPublisher<>(GlobalState.backgroundExecutor, Flow.defaultBufferSize());
+			publisher.subscribe(subscriber);
+		}
+		alertPublisher = publisher;
+		analyzers = List.copyOf(GlobalState.analyzers);
+		analyzerAlerts = new LinkedHashMap<>();
+		List<Analyzer> pipeline = new ArrayList<>(BUILT_IN_ANALYZERS);
+		pipeline.addAll(analyzers);
 		List<Alert> alerts = new ArrayList<>();
-		resolveTrueDependencies();
-		computeDependerMap();
-		alerts.addAll(parseAllModFiles());
-		fileToModsMap = getFileToModsMap();
-		GlobalState.log("");
-		GlobalState.log("Checking for shadowed files...");
-		computeFileShadowing();
-		GlobalState.log("");
-		GlobalState.log("Checking for shadowed definitions...");
-		alerts.addAll(computeDefinitionShadowing());
-		GlobalState.log("");
-		GlobalState.log("Mapping definitions...");
-		definitionsMap = getDefinitionsMap();
-		GlobalState.log("");
-		GlobalState.log("Checking for conflicts...");
-		GlobalState.log("");
-		alerts.addAll(findFileNameConflicts());
-		GlobalState.log("");
-		alerts.addAll(findDefinitionConflicts());
+		try{
+			Map<Analyzer, List<Alert>> results = new AnalyzerPipeline(pipeline, Set.of())
+					.run(this, GlobalState.backgroundExecutor, (analyzer, analyzerResult) -> {
+						if(analyzer != PARSING)
+							publish(analyzerResult);
+					});
+			for(Map.Entry<Analyzer, List<Alert>> entry : results.entrySet()){
+				alerts.addAll(entry.getValue());
+				if(!BUILT_IN_ANALYZERS.contains(entry.getKey()))
+					analyzerAlerts.put(entry.getKey(), entry.getValue());
+			}
+		} catch(ExecutionException | InterruptedException | IllegalArgumentException e){
+			GlobalState.log(e.getLocalizedMessage());
+			e.printStackTrace();
+			// the next update starts over
+			definitionTable = null;
+			if(publisher != null)
+				publisher.closeExceptionally(e);
+		} finally{
+			alertPublisher = null;
+			if(publisher != null)
+				publisher.close();
+		}
 		return alerts;
 	}
 	
+	/** Retrieves a {@link List} containing an {@link Alert} for each conflict or parse error currently encountered
+	 * in this ModList, as found by {@link ModList#runConflictCheck()} and kept up to date by
+	 * {@link ModList#update(Collection)}.
+	 * @return List of all current Alerts, or an empty List if no conflict check was run
+	 */
+	public synchronized List<Alert> getAlerts(){
+		List<Alert> alerts = new ArrayList<>();
+		if(definitionTable == null)
+			return alerts;
+		for(Mod mod : mods){
+			alerts.addAll(mod.getParseAlerts());
+		}
+		alerts.addAll(undefineAlerts.values());
+		alerts.addAll(fileConflictAlerts.values());
+		alerts.addAll(nameConflictAlerts.values());
+		for(List<Alert> additionalAlerts : analyzerAlerts.values()){
+			alerts.addAll(additionalAlerts);
+		}
+		return alerts;
+	}
+	
+	/** Retrieves all current {@link Definition}s of the given Name in the given {@link GameFolder}, as found by
+	 * {@link ModList#runConflictCheck()} and kept up to date by {@link ModList#update(Collection)}.
+	 * The Definitions are only valid until the next update, which may compact the {@link DefinitionTable}.
+	 * @param gameFolder the GameFolder of the Definitions
+	 * @param name the Name of the Definitions
+	 * @return List of Definitions, in ascending order of their rows, or an empty List if there are none,
+	 * or if no conflict check was run
+	 */
+	public synchronized List<Definition> getDefinitions(GameFolder gameFolder, String name){
+		int nameId = GlobalState.symbols.lookup(name);
+		if(definitionTable == null || nameId < 0)
+			return List.of();
+		DefinitionGroup group = definitionGroups.get(DefinitionTable.getKey(gameFolder.ordinal(), nameId));
+		if(group == null)
+			return List.of();
+		List<Definition> definitions = new ArrayList<>(group.rows.length);
+		for(int row : group.rows){
+			definitions.add(definitionTable.get(row));
+		}
+		return definitions;
+	}
+	
+	/** Returns true iff the given {@link Definition} is shadowed, i.e. its file is overridden by files of equal name
+	 * of {@link Mod}s that depend on its Mod.
+	 * @param definition a Definition retrieved by {@link ModList#getDefinitions(GameFolder, String)} since the last
+	 *                   update of this ModList
+	 * @return true iff the Definition is shadowed
+	 */
+	public synchronized boolean isShadowed(Definition definition){
+		return definitionTable != null && !unShadowedDefinitions.get(definition.getRow());
+	}
+	
+	/** Updates this ModList after the files at the given {@link Path}s were created, modified or deleted,
+	 * by re-parsing only the affected {@link jay.aenigma.Mod.ModFile}s of each {@link Mod}, then re-evaluating
+	 * only the file names and {@link Definition} names that occur in them. <br/>
+	 * If {@link ModList#runConflictCheck()} was not run before, it is run instead, and all of its Alerts are added.
+	 * Changes to the list of Mods itself, i.e. to the Settings File or any *.mod File, are not picked up;
+	 * a new ModList must be created for those.
+	 * @param changedPaths the absolute Paths of the changed files and folders
+	 * @return the {@link AlertDelta} between the previous Alerts and those now encountered, see
+	 * {@link ModList#getAlerts()}, or null if none of the changed Paths affect this ModList.
+	 */
+	public synchronized AlertDelta update(Collection<Path> changedPaths){
+		AlertDelta delta = new AlertDelta();
+		if(definitionTable == null){
+			for(Alert alert : runConflictCheck()){
+				delta.replace(null, alert);
+			}
+			return delta;
+		}
+		
+		long time = System.nanoTime();
+		List<Mod.FileTask> tasks = new ArrayList<>();
+		List<Mod.ModFile> removedFiles = new ArrayList<>();
+		ContentIndex contents = new ContentIndex();
+		boolean changed = false;
+		for(Mod mod : mods){
+			try{
+				changed |= mod.listChangedFileTasks(changedPaths, parseCache, contents, tasks, removedFiles);
+			} catch(IOException e){
+				e.printStackTrace();
+			}
+		}
+		if(!changed)
+			return null;
+		
+		GlobalState.log(String.format("Re-parsing %d changed mod files.", tasks.size()));
+		try{
+			runFileTasks(tasks);
+		} catch(InterruptedException | ExecutionException e){
+			e.printStackTrace();
+		}
+		parseCacheChanged = true;
+		Set<Mod> changedMods = new HashSet<>();
+		List<Mod.ModFile> addedFiles = new ArrayList<>();
+		for(Mod.FileTask task : tasks){
+			changedMods.add(task.getMod());
+			if(task.getModFile() != null)
+				addedFiles.add(task.getModFile());
+		}
+		for(Mod.ModFile file : removedFiles){
+			changedMods.add(file.getMod());
+		}
+		for(Mod mod : changedMods){
+			mod.appendDefinitions(definitionTable);
+		}
+		
+		DefinitionTable table = definitionTable;
+		Set<Integer> fileNames = new HashSet<>();
+		Set<Long> definitionKeys = new HashSet<>();
+		BitSet rows = new BitSet();
+		for(Mod.ModFile file : removedFiles){
+			fileNames.add(file.getNameId());
+			unShadowedFiles.remove(file);
+			shadowingFiles.remove(file);
+			delta.replace(file.getParseAlerts(), List.of());
+			table.release(file);
+			for(int row = file.getFirstRow(); row < file.getEndRow(); row++){
+				unShadowedDefinitions.clear(row);
+				shadowingDefinitions.remove(row);
+				delta.replace(undefineAlerts.remove(row), null);
+			}
+		}
+		for(Mod.ModFile file : addedFiles){
+			fileNames.add(file.getNameId());
+			delta.replace(List.of(), file.getParseAlerts());
+			rows.set(file.getFirstRow(), file.getEndRow());
+		}
+		// each group changes once, so that its rows are copied and its file names counted only once
+		removedFiles.sort(FIRST_ROW_FIRST);
+		addedFiles.sort(FIRST_ROW_FIRST);
+		table.groupByKey(removedFiles).forEach((key, removedRows) -> {
+			definitionKeys.add(key);
+			definitionGroups.computeIfPresent(key, (k, group) -> {
+				int[] groupRows = removeRows(group.rows, removedRows);
+				return groupRows.length > 0 ? new DefinitionGroup(groupRows, table) : null;
+			});
+		});
+		table.groupByKey(addedFiles).forEach((key, addedRows) -> {
+			definitionKeys.add(key);
+			DefinitionGroup group = definitionGroups.get(key);
+			definitionGroups.put(key, new DefinitionGroup(
+					group != null ? DefinitionTable.appendRows(group.rows, addedRows) : addedRows, table));
+		});
+		
+		// files of equal name may now be shadowed by different files, and conflict with different files
+		for(int fileName : fileNames){
+			List<Mod> fileMods = new ArrayList<>();
+			for(Mod mod : mods){
+				Mod.ModFile file = mod.getModFileByName(fileName);
+				if(file != null){
+					fileMods.add(mod);
+					if(shadowFile(file))
+						rows.set(file.getFirstRow(), file.getEndRow());
+				}
+			}
+			if(fileMods.isEmpty())
+				fileToModsMap.remove(fileName);
+			else
+				fileToModsMap.put(fileName, fileMods);
+			putOrRemove(fileConflictAlerts, fileName,
+					delta.replace(fileConflictAlerts.get(fileName), checkFileName(fileName)));
+		}
+		// shadowed definitions of equal key may have gained or lost equivalents in depender mods
+		for(long key : definitionKeys){
+			DefinitionGroup group = definitionGroups.get(key);
+			if(group != null){
+				for(int row : group.rows){
+					if(!unShadowedDefinitions.get(row))
+						rows.set(row);
+				}
+			}
+		}
+		for(int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)){
+			definitionKeys.add(table.getKey(row));
+			putOrRemove(undefineAlerts, row, delta.replace(undefineAlerts.get(row), shadowDefinition(row)));
+		}
+		for(long key : definitionKeys){
+			putOrRemove(nameConflictAlerts, key, delta.replace(nameConflictAlerts.get(key), checkDefinitionKey(key)));
+		}
+		// additional analyzers are not incremental, and simply run again
+		if(!analyzers.isEmpty()){
+			try{
+				Map<Analyzer, List<Alert>> results = new AnalyzerPipeline(analyzers, BUILT_IN_PRODUCTS)
+						.run(this, GlobalState.backgroundExecutor);
+				results.forEach((analyzer, alerts) -> analyzerAlerts.put(analyzer,
+						delta.replace(analyzerAlerts.getOrDefault(analyzer, List.of()), alerts)));
+			} catch(ExecutionException | InterruptedException | IllegalArgumentException e){
+				GlobalState.log(e.getLocalizedMessage());
+				e.printStackTrace();
+			}
+		}
+		
+		if(table.needsCompaction())
+			compactDefinitionTable();
+		
+		time = (System.nanoTime() - time) / 1_000_000;
+		GlobalState.log(String.format("Updated %d changed mod files, %d definitions and %d alerts (%d ms).",
+				tasks.size(), rows.cardinality(), delta.getAdded().size() + delta.getRemoved().size(), time));
+		return delta;
+	}
+	
+	/**
+	 * Compacts the {@link DefinitionTable}, see {@link DefinitionTable#compact()}, and moves all rows kept by this
+	 * ModList and its {@link Mod}s to their new rows.
+	 */
+	private void compactDefinitionTable(){
+		DefinitionTable table = definitionTable;
+		int oldSize = table.size();
+		int[] newRows = table.compact();
+		for(Mod mod : mods){
+			mod.appendDefinitions(table);
+		}
+		definitionGroups.replaceAll((key, group) -> group.moveRows(newRows));
+		BitSet unShadowed = new BitSet(table.size());
+		for(int row = unShadowedDefinitions.nextSetBit(0); row >= 0; row = unShadowedDefinitions.nextSetBit(row + 1)){
+			unShadowed.set(newRows[row]);
+		}
+		unShadowedDefinitions = unShadowed;
+		Map<Integer, int[]> shadowing = new HashMap<>(shadowingDefinitions.size() * 4 / 3 + 1);
+		shadowingDefinitions.forEach((row, shadowingRows) ->
+				shadowing.put(newRows[row], moveRows(shadowingRows, newRows)));
+		shadowingDefinitions = shadowing;
+		SortedMap<Integer, Alert> undefines = new TreeMap<>();
+		undefineAlerts.forEach((row, alert) -> undefines.put(newRows[row], alert));
+		undefineAlerts = undefines;
+		GlobalState.log(String.format("Compacted the definition table from %d to %d rows.", oldSize, table.size()));
+	}
+	
+	private static int[] moveRows(int[] rows, int[] newRows){
+		int[] result = new int[rows.length];
+		for(int i = 0; i < rows.length; i++){
+			result[i] = newRows[rows[i]];
+		}
+		return result;
+	}
+	
+	private static <K, V> void putOrRemove(Map<K, V> map, K key, V value){
+		if(value != null)
+			map.put(key, value);
+		else
+			map.remove(key);
+	}
+	
+	private static int[] removeRows(int[] rows, int[] removed){
+		// both are in ascending order
+		int[] result = new int[rows.length];
+		int size = 0;
+		int r = 0;
+		for(int row : rows){
+			while(r < removed.length && removed[r] < row)
+				r++;
+			if(r == removed.length || removed[r] != row)
+				result[size++] = row;
+		}
+		return size == rows.length ? rows : Arrays.copyOf(result, size);
+	}
+	
 	/**Loads all {@link Mod}s described in the Settings File at the given {@link Path}. <br/>
 	 * Returns an unmodifiable {@link List} containing the resulting mods.
 	 * @param settingsFile Path to a Settings File
@@ -207,118 +706,318 @@ public class ModList implements Closeable{
 		for(String modPath : modPathList){
 			String modFile = modPath.substring(1, modPath.length() - 1);
 			GlobalState.log("reading file " + modFile);
-			Mod mod = Mod.load(modFile);
+			Mod mod = Mod.load(userDataFolder, modFile);
 			mod.getDependencies().add(vanilla.getName());
 			mods.add(mod);
 		}
 		GlobalState.log("");
+		for(int i = 0; i < mods.size(); i++){
+			mods.get(i).setIndex(i);
+		}
 		return List.copyOf(mods);
 	}
 	
 	/** Parses all {@link jay.aenigma.Mod.ModFile}s for each {@link Mod} in this {@link List},
-	 * by using the {@link GlobalState#backgroundExecutor} to invoke {@link Mod#parseFiles()} on each of them.
-	 * @return the List of {@link Alert}s generated by Parsing errors.
+	 * by using the {@link GlobalState#backgroundExecutor} to run the
+	 * {@link Mod#listFileTasks(ParseCache, ContentIndex)} of all of them, and checks the files of each folder for
+	 * conflicts as soon as all of them are parsed, see {@link FolderGroup}. <br/>
+	 * The tasks are submitted smallest folder first, so that the results for small folders are available early,
+	 * and largest file first within each folder, so that no single large file is left to be parsed at the end.
+	 * Each folder is checked by {@link ModList#checkFolder(FolderGroup)} on a single thread of its own, while the
+	 * remaining folders are still being parsed. <br/>
+	 * Unless disabled by {@link GlobalState#useParseCache}, files that are unchanged since the last run are not parsed,
+	 * but restored from the {@link ParseCache}. Byte-identical files are parsed only once, see {@link ContentIndex}.
+	 * The {@link Alert}s generated by Parsing errors are kept by the ModFiles, see {@link Mod#getParseAlerts()}.
+	 * @throws InterruptedException iff interrupted while waiting for the tasks or checks
+	 * @throws ExecutionException iff any check threw
 	 */
-	private List<Alert> parseAllModFiles(){
-		List<Alert> alerts = new ArrayList<>();
+	private void parseAllModFiles() throws InterruptedException, ExecutionException{
+		GlobalState.log("Parsing all mod files.");
+		long time = System.nanoTime();
+		ParseCache cache;
+		ContentIndex contents;
+		if(sharedContents != null){
+			cache = sharedParseCache;
+			contents = sharedContents;
+		}
+		else {
+			cache = GlobalState.useParseCache ? ParseCache.load(userDataFolder.resolve(ParseCache.CACHE_FILE)) : null;
+			contents = new ContentIndex();
+		}
+		parseCache = cache;
+		List<Mod.FileTask> tasks = new ArrayList<>();
+		for(Mod mod : mods){
+			try{
+				tasks.addAll(mod.listFileTasks(cache, contents));
+			} catch(IOException e){
+				e.printStackTrace();
+			}
+		}
+		
+		Map<Path, FolderGroup> folderGroups = new HashMap<>();
+		Map<Mod.FileTask, FolderGroup> taskGroups = new HashMap<>();
+		for(Mod.FileTask task : tasks){
+			FolderGroup group = folderGroups.computeIfAbsent(Paths.get(task.getGameFolder().getPath()),
+					path -> new FolderGroup());
+			group.add(task);
+			taskGroups.put(task, group);
+		}
+		List<FolderGroup> groups = new ArrayList<>(folderGroups.values());
+		groups.sort(Comparator.comparingLong(group -> group.size));
+		List<Mod.FileTask> schedule = new ArrayList<>(tasks.size());
+		for(FolderGroup group : groups){
+			group.tasks.stream().sorted(LARGEST_FIRST).forEachOrdered(schedule::add);
+		}
+		
+		definitionTable = new DefinitionTable(GlobalState.game.getGameFolders());
+		definitionGroups = new HashMap<>();
+		fileToModsMap = new HashMap<>();
+		unShadowedFiles = new HashSet<>();
+		shadowingFiles = new HashMap<>();
+		unShadowedDefinitions = new BitSet();
+		shadowingDefinitions = new HashMap<>();
+		undefineAlerts = new TreeMap<>();
+		fileConflictAlerts = new HashMap<>();
+		nameConflictAlerts = new TreeMap<>();
+		ExecutorService folderChecker = Executors.newSingleThreadExecutor();
+		List<Future<?>> checks = Collections.synchronizedList(new ArrayList<>());
 		try{
-			GlobalState.log("Parsing all mod files.");
-			List<Future<List<Alert>>> futures = GlobalState.backgroundExecutor.invokeAll(
-					mods.stream()
-							.map(mod -> (Callable<List<Alert>>) mod::parseFiles)
-							.collect(Collectors.toList())
-			);
-			for(Future<List<Alert>> listFuture : futures){
-				alerts.addAll(listFuture.get());
+			runFileTasks(schedule, task -> {
+				FolderGroup group = taskGroups.get(task);
+				if(group.pendingTasks.decrementAndGet() == 0)
+					checks.add(folderChecker.submit(() -> publish(checkFolder(group))));
+			});
+			long parseTime = System.nanoTime();
+			GlobalState.log(String.format("Parsed all %d mod files (%d ms).",
+					tasks.size(), (parseTime - time) / 1_000_000));
+			GlobalState.log(String.format("Shared the results of %d identical files.", contents.getHits()));
+			if(cache != null && cache != sharedParseCache){
+				GlobalState.log(String.format("Reused %d unchanged files from the parse cache.", cache.getHits()));
+				try{
+					cache.save();
+				} catch(IOException e){
+					e.printStackTrace();
+				}
 			}
-			GlobalState.log("Parsed all mod files.");
-		} catch(InterruptedException | ExecutionException e){
-			e.printStackTrace();
+			for(Future<?> check : checks){
+				check.get();
+			}
+			GlobalState.log(String.format(
+					"Found %d definitions, and checked %d folders for conflicts (%d ms after parsing).",
+					definitionTable.size(), checks.size(), (System.nanoTime() - parseTime) / 1_000_000));
+		} finally{
+			folderChecker.shutdownNow();
 		}
-		return alerts;
 	}
 	
-	/** Generates the {@link List} of {@link Alert}s corresponding to all File Name Conflicts that occur
-	 * between any non-dependent {@link Mod}s in this List.
-	 * @return The List of Alerts generated by File Name Conflicts.
+	/**Checks the files of the given {@link FolderGroup} for conflicts, once all of them are parsed: appends their
+	 * {@link Definition}s to the {@link DefinitionTable}, records the shadowing of the files and Definitions and the
+	 * {@link DefinitionGroup}s, and records the {@link Alert}s for their file names and definition keys. <br/>
+	 * Must not be called concurrently, since it modifies the state of this ModList; files of other folders, however,
+	 * may still be parsed in the meantime.
+	 * @param group the FolderGroup whose files are all parsed
+	 * @return the List of Alerts encountered
 	 */
-	private List<Alert> findFileNameConflicts(){
-		GlobalState.log("Checking for file name conflicts...");
+	private List<Alert> checkFolder(FolderGroup group){
+		DefinitionTable table = definitionTable;
+		int firstRow = table.size();
+		Set<Mod> groupMods = new LinkedHashSet<>();
+		for(Mod.FileTask task : group.tasks){
+			groupMods.add(task.getMod());
+		}
+		for(Mod mod : groupMods){
+			mod.appendDefinitions(table, group.gameFolders);
+		}
+		
+		List<Mod.ModFile> files = new ArrayList<>(group.tasks.size());
+		Set<Integer> fileNames = new LinkedHashSet<>();
+		for(Mod.FileTask task : group.tasks){
+			Mod.ModFile file = task.getModFile();
+			if(file != null){
+				files.add(file);
+				fileNames.add(file.getNameId());
+				fileToModsMap.computeIfAbsent(file.getNameId(), name -> new ArrayList<>()).add(file.getMod());
+			}
+		}
+		for(Mod.ModFile file : files){
+			shadowFile(file);
+		}
+		
 		List<Alert> alerts = new ArrayList<>();
-		for(Map.Entry<String, List<Mod>> entry : fileToModsMap.entrySet()){
-			if(entry.getValue().size() > 1){
-				List<Mod> conflicts = cleanConflictList(entry.getValue());
-				if(conflicts.size() > 2 || (!conflicts.contains(vanilla) && conflicts.size() > 1)){
-					List<Mod.ModFile> modFiles = conflicts.stream()
-							.map(mod -> mod.getModFileByName(entry.getKey()))
-							.collect(Collectors.toUnmodifiableList());
-					GameFolder gameFolder = modFiles.get(0).getGameFolder();
-					Alert alert = new Alert(Severity.WARNING, Alert.Kind.FILE_CONFLICT, gameFolder, modFiles,
-							null, "File name conflict between non-dependent mods.");
-					//GlobalState.log(alert.toString());
-					alerts.add(alert);
-				}
+		for(int row = firstRow; row < table.size(); row++){
+			Alert alert = shadowDefinition(row);
+			if(alert != null){
+				undefineAlerts.put(row, alert);
+				alerts.add(alert);
+			}
+		}
+		Map<Long, int[]> keyRowsMap = table.groupByKey(firstRow, table.size());
+		keyRowsMap.forEach((key, rows) -> definitionGroups.put(key, new DefinitionGroup(rows, table)));
+		
+		for(int fileName : fileNames){
+			Alert alert = checkFileName(fileName);
+			if(alert != null){
+				fileConflictAlerts.put(fileName, alert);
+				alerts.add(alert);
+			}
+		}
+		for(long key : keyRowsMap.keySet()){
+			Alert alert = checkDefinitionKey(key);
+			if(alert != null){
+				nameConflictAlerts.put(key, alert);
+				alerts.add(alert);
 			}
 		}
-		GlobalState.log("Got file name conflicts.");
 		return alerts;
 	}
 	
-	/** Generates the {@link List} of {@link Alert}s corresponding to all {@link Definition} conflicts that occur
-	 * in this ModList, that is, all Lists of Definitions that are each equal in {@link Definition#getName()} and {@link Definition#getGameFolder()},
-	 * but distinct in {@link Definition#getFile()}.
-	 * @return The List of Alerts corresponding to {@link Definition} conflicts
+	/**Determines the shadowing of all {@link Definition}s again, as {@link ModList#checkFolder(FolderGroup)} does,
+	 * which leaves the state of this ModList as it was. Only meant for measuring this step on its own,
+	 * after {@link ModList#runConflictCheck()} has run.
+	 * @return the number of Definitions that are deleted by shadowing files
 	 */
-	private List<Alert> findDefinitionConflicts(){
-		GlobalState.log("Checking for definition conflicts...");
-		List<Alert> alerts = new ArrayList<>();
-		for(Map.Entry<String, List<Definition>> entry : definitionsMap.entrySet()){
-			String definitionName = entry.getKey();
-			List<Definition> duplicateDefinitions = entry.getValue();
-			if(duplicateDefinitions.size() > 1){
-				Set<GameFolder> gameFolders = duplicateDefinitions.stream().map(Definition::getGameFolder)
-						.collect(Collectors.toUnmodifiableSet());
-				for(GameFolder gameFolder : gameFolders){
-					List<Definition> duplicateDefinitionsInGameFolderList = duplicateDefinitions.stream()
-							.filter(definition -> definition.getGameFolder().equals(gameFolder))
-							.collect(Collectors.toList());
-					if(duplicateDefinitionsInGameFolderList.size() > 1
-							&& duplicateDefinitionsInGameFolderList.stream().map(Definition::getFile).map(Mod.ModFile::getName).distinct().count() > 1){
-						MergeBehaviour mergeBehaviour = duplicateDefinitionsInGameFolderList.get(0).getMergeBehaviour();
-						if(mergeBehaviour.compareTo(MergeBehaviour.NOT_APPLICABLE) > 0){
-							String name = duplicateDefinitionsInGameFolderList.get(0).getName();
-							List<Mod.ModFile> modFiles = duplicateDefinitionsInGameFolderList.stream().map(Definition::getFile).collect(Collectors.toList());
-							Alert alert = new Alert(mergeBehaviour.severity, Alert.Kind.NAME_CONFLICT,
-									gameFolder, modFiles, name,
-									"An instance of type "+gameFolder.toString() +"\n" +
-											" with name \""+ definitionName + "\"\n" +
-											" is defined in multiple distinctly-named files.\n"
-											+ mergeBehaviour.description);
-							alerts.add(alert);
-						}
-					}
+	synchronized int shadowAllDefinitions(){
+		int undefined = 0;
+		for(int row = 0; row < definitionTable.size(); row++){
+			if(shadowDefinition(row) != null)
+				undefined++;
+		}
+		return undefined;
+	}
+	
+	/**Groups all {@link Definition}s by key and checks each key for conflicts again, as
+	 * {@link ModList#checkFolder(FolderGroup)} does, which leaves the state of this ModList as it was.
+	 * Only meant for measuring this step on its own, after {@link ModList#runConflictCheck()} has run.
+	 * @return the number of keys in conflict
+	 */
+	synchronized int groupAllDefinitions(){
+		DefinitionTable table = definitionTable;
+		Map<Long, int[]> keyRowsMap = table.groupByKey(0, table.size());
+		keyRowsMap.forEach((key, rows) -> definitionGroups.put(key, new DefinitionGroup(rows, table)));
+		int conflicts = 0;
+		for(long key : keyRowsMap.keySet()){
+			if(checkDefinitionKey(key) != null)
+				conflicts++;
+		}
+		return conflicts;
+	}
+	
+	/** Runs the given {@link jay.aenigma.Mod.FileTask}s using the {@link GlobalState#backgroundExecutor},
+	 * largest file first, so that no single large file is left to be parsed at the end.
+	 * @param tasks the FileTasks to run
+	 * @throws InterruptedException iff interrupted while waiting for the tasks
+	 * @throws ExecutionException iff any task threw
+	 */
+	private void runFileTasks(List<Mod.FileTask> tasks) throws InterruptedException, ExecutionException{
+		List<Mod.FileTask> schedule = new ArrayList<>(tasks);
+		schedule.sort(LARGEST_FIRST);
+		runFileTasks(schedule, task -> {});
+	}
+	
+	/** Runs the given {@link jay.aenigma.Mod.FileTask}s using the {@link GlobalState#backgroundExecutor}, in the given
+	 * order, and passes each of them to the given {@link Consumer} once it is done, on the thread that ran it.
+	 * @param schedule the FileTasks to run, in order
+	 * @param onDone receives each FileTask once it is done, even if it threw
+	 * @throws InterruptedException iff interrupted while waiting for the tasks
+	 * @throws ExecutionException iff any task threw
+	 */
+	private void runFileTasks(List<Mod.FileTask> schedule, Consumer<Mod.FileTask> onDone)
+			throws InterruptedException, ExecutionException{
+		List<Callable<List<Alert>>> callables = new ArrayList<>(schedule.size());
+		for(Mod.FileTask task : schedule){
+			callables.add(() -> {
+				try{
+					List<Alert> alerts = task.call();
+					publish(alerts);
+					return alerts;
+				} finally{
+					onDone.accept(task);
 				}
+			});
+		}
+		for(Future<List<Alert>> future : GlobalState.backgroundExecutor.invokeAll(callables)){
+			future.get();
+		}
+	}
+	
+	/**Publishes the given {@link Alert}s to the Subscriber of the conflict check in progress, if any,
+	 * see {@link ModList#runConflictCheck(Flow.Subscriber)}.
+	 * @param alerts the Alerts to publish
+	 */
+	private void publish(List<Alert> alerts){
+		SubmissionPublisher<Alert> publisher = alertPublisher;
+		if(publisher != null){
+			for(Alert alert : alerts){
+				publisher.submit(alert);
 			}
 		}
-		GlobalState.log("Got definition conflicts.");
-		return alerts;
 	}
 	
-	/**Generates a {@link Map} relating each {@link Mod.ModFile#getName()} to a {@link List} of {@link Mod.ModFile#getMod()}
-	 * for each loaded {@link jay.aenigma.Mod.ModFile} in this List of {@link Mod}s.
-	 * @return a multi-map of File Names to Mods
+	/** Generates the {@link Alert} corresponding to the File Name Conflict between the non-dependent {@link Mod}s
+	 * that contain a file of the given name, if any. <br/>
+	 * If all of the conflicting files are byte-identical, the conflict is harmless, and only reported as
+	 * {@link Severity#INFO}.
+	 * @param fileName the id of the File Name
+	 * @return the Alert generated by the File Name Conflict, or null if there is none
 	 */
-	private Map<String, List<Mod>> getFileToModsMap(){
-		Map<String, List<Mod>> stringModListMap = new HashMap<>();
-		for(Mod mod : mods){
-			for(Mod.ModFile file : mod.getFiles()){
-				if(!stringModListMap.containsKey(file.getName())){
-					stringModListMap.put(file.getName(), new ArrayList<>());
-				}
-				stringModListMap.get(file.getName()).add(mod);
+	private Alert checkFileName(int fileName){
+		List<Mod> fileMods = fileToModsMap.get(fileName);
+		if(fileMods == null || fileMods.size() < 2)
+			return null;
+		List<Mod> conflicts = cleanConflictList(fileMods);
+		if(conflicts.size() > 2 || (!conflicts.contains(vanilla) && conflicts.size() > 1)){
+			List<Mod.ModFile> modFiles = conflicts.stream()
+					.map(mod -> mod.getModFileByName(fileName))
+					.collect(Collectors.toUnmodifiableList());
+			GameFolder gameFolder = modFiles.get(0).getGameFolder();
+			if(modFiles.stream().allMatch(modFiles.get(0)::isIdenticalTo)){
+				return new Alert(Severity.INFO, Alert.Kind.FILE_CONFLICT, gameFolder, modFiles,
+						null, "File name conflict between non-dependent mods, whose files are identical.");
+			}
+			//GlobalState.log(alert.toString());
+			return new Alert(Severity.WARNING, Alert.Kind.FILE_CONFLICT, gameFolder, modFiles,
+					null, "File name conflict between non-dependent mods.");
+		}
+		return null;
+	}
+	
+	/** Generates the {@link Alert} corresponding to the conflict between the unshadowed {@link Definition}s with the
+	 * given key, if they occur in distinctly-named files.
+	 * @param key the key of the Definitions, see {@link DefinitionTable#getKey(int, int)}
+	 * @return The Alert corresponding to the Definition conflict, or null if there is none
+	 */
+	private Alert checkDefinitionKey(long key){
+		DefinitionGroup group = definitionGroups.get(key);
+		if(group == null || group.fileNames < 2)
+			return null;
+		DefinitionTable table = definitionTable;
+		int[] run = new int[group.rows.length];
+		int count = 0;
+		boolean distinctFiles = false;
+		for(int row : group.rows){
+			if(unShadowedDefinitions.get(row)){
+				run[count++] = row;
+				distinctFiles |= table.getFile(row).getNameId() != table.getFile(run[0]).getNameId();
 			}
 		}
-		return stringModListMap;
+		if(count < 2 || !distinctFiles)
+			return null;
+		MergeBehaviour mergeBehaviour = table.getMergeBehaviour(run[0]);
+		if(mergeBehaviour.compareTo(MergeBehaviour.NOT_APPLICABLE) <= 0)
+			return null;
+		
+		String definitionName = GlobalState.symbols.name(DefinitionTable.getNameOfKey(key));
+		GameFolder gameFolder = table.getGameFolder(run[0]);
+		List<Mod.ModFile> modFiles = new ArrayList<>(count);
+		for(int k = 0; k < count; k++){
+			modFiles.add(table.getFile(run[k]));
+		}
+		return new Alert(mergeBehaviour.severity, Alert.Kind.NAME_CONFLICT,
+				gameFolder, modFiles, definitionName,
+				"An instance of type "+gameFolder.toString() +"\n" +
+						" with name \""+ definitionName + "\"\n" +
+						" is defined in multiple distinctly-named files.\n"
+						+ mergeBehaviour.description);
 	}
 	
 	/**Prevents compatibility patches and similar {@link Mod}s from being recognized as conflicts
@@ -327,57 +1026,109 @@ public class ModList implements Closeable{
 	 * @return the filtered List of Mods
 	 */
 	private List<Mod> cleanConflictList(List<Mod> conflictedMods){
-    	int n = conflictedMods.size();
-    	boolean[] clean = new boolean[n];
-		for(int i = 0; i < n; i++){
-			if(!conflictedMods.get(i).equals(vanilla)){
-				for(int j = 0; j < n; j++){
-					if(i != j && isTrueDependency(conflictedMods.get(j), conflictedMods.get(i))){
-						clean[i] = true;
-					}
-				}
+		long[] dependencies = new long[trueDependencies[0].length];
+		for(Mod mod : conflictedMods){
+			long[] bits = trueDependencies[mod.getIndex()];
+			for(int i = 0; i < bits.length; i++){
+				dependencies[i] |= bits[i];
 			}
 		}
 		List<Mod> dirtyMods = new ArrayList<>();
-		for(int i = 0; i < n; i++){
-			if(!clean[i])
-				dirtyMods.add(conflictedMods.get(i));
+		for(Mod mod : conflictedMods){
+			boolean clean = !mod.equals(vanilla) && getBit(dependencies, mod.getIndex());
+			if(clean && isTrueDependency(mod, mod)){
+				// a Mod in a dependency cycle depends on itself, which does not count
+				clean = conflictedMods.stream().anyMatch(other -> other != mod && isTrueDependency(other, mod));
+			}
+			if(!clean)
+				dirtyMods.add(mod);
 		}
 		return dirtyMods;
 	}
 	
-	/**Generates the {@link Map} {@link ModList#trueDependencies}, which relates each {@link Mod} in this ModList
-	 * to all of its direct or indirect dependencies among the Mods loaded in this ModList by means of a
-	 * breadth-first search.<br/>
+	/**Generates the bitsets {@link ModList#trueDependencies}, which relate each {@link Mod} in this ModList
+	 * to all of its direct or indirect dependencies among the Mods loaded in this ModList. <br/>
 	 * I.e. if we view the dependency relation between Mods as a Directed Acyclic Graph, then this method
-	 * maps every node in said DAG to the {@link Set} of nodes that are reachable from it, not including the node itself.
+	 * maps every node in said DAG to the Set of nodes that are reachable from it, not including the node itself.
+	 * The Mods are visited in topological order, so that the bitset of each is the union of those of its direct
+	 * dependencies. Mods in a dependency cycle, which are reported, are instead resolved by repeating this until
+	 * nothing changes; each of them is then among its own dependencies.
 	 */
 	private void resolveTrueDependencies(){
 		GlobalState.log("Resolving dependencies...");
-		trueDependencies = new HashMap<>();
+		int n = mods.size();
+		int words = (n + 63) >>> 6;
 		Map<String, Mod> modsByNameMap = Util.mapBy(mods, Mod::getName);
+		long[][] direct = new long[n][words];
+		long[][] reverse = new long[n][words];
+		int[] unresolved = new int[n];
+		for(int depender = 0; depender < n; depender++){
+			for(String dependency : mods.get(depender).getDependencies()){
+				Mod dependeeMod = modsByNameMap.get(dependency);
+				if(dependeeMod != null && !getBit(direct[depender], dependeeMod.getIndex())){
+					setBit(direct[depender], dependeeMod.getIndex());
+					setBit(reverse[dependeeMod.getIndex()], depender);
+					unresolved[depender]++;
+				}
+			}
+		}
 		
-		for(Mod dependerMod : mods){
-			Queue<Mod> dependeeModQueue = new ArrayDeque<>();
-			Set<Mod> encounteredModSet = new HashSet<>();
-			dependeeModQueue.add(dependerMod);
-			while(!dependeeModQueue.isEmpty()){
-				Mod nextMod = dependeeModQueue.poll();
-				for(String dependency : nextMod.getDependencies()){
-					if(modsByNameMap.containsKey(dependency)){
-						Mod dependeeMod = modsByNameMap.get(dependency);
-						if(!encounteredModSet.contains(dependeeMod)){
-							encounteredModSet.add(dependeeMod);
-							dependeeModQueue.add(dependeeMod);
+		trueDependencies = new long[n][words];
+		int[] queue = new int[n];
+		int resolved = 0;
+		for(int mod = 0; mod < n; mod++){
+			if(unresolved[mod] == 0)
+				queue[resolved++] = mod;
+		}
+		for(int head = 0; head < resolved; head++){
+			int mod = queue[head];
+			unionOfDependencies(direct[mod], trueDependencies[mod]);
+			long[] bits = reverse[mod];
+			for(int depender = nextSetBit(bits, 0); depender >= 0; depender = nextSetBit(bits, depender + 1)){
+				if(--unresolved[depender] == 0)
+					queue[resolved++] = depender;
+			}
+		}
+		
+		if(resolved < n){
+			List<String> cyclicMods = new ArrayList<>();
+			for(int mod = 0; mod < n; mod++){
+				if(unresolved[mod] > 0)
+					cyclicMods.add(mods.get(mod).getName());
+			}
+			GlobalState.log("Found cyclic dependencies among: " + String.join(", ", cyclicMods));
+			long[] bits = new long[words];
+			for(boolean changed = true; changed; ){
+				changed = false;
+				for(int mod = 0; mod < n; mod++){
+					if(unresolved[mod] > 0){
+						Arrays.fill(bits, 0);
+						unionOfDependencies(direct[mod], bits);
+						if(!Arrays.equals(bits, trueDependencies[mod])){
+							System.arraycopy(bits, 0, trueDependencies[mod], 0, words);
+							changed = true;
 						}
 					}
 				}
 			}
-			setTrueDependencies(dependerMod, encounteredModSet);
 		}
 		GlobalState.log("Resolved dependencies.");
 	}
 	
+	/**Adds the given direct dependencies, and all of their dependencies as currently resolved, to the given bitset.
+	 * @param direct the bitset of direct dependencies of a {@link Mod}
+	 * @param bits the bitset to add to
+	 */
+	private void unionOfDependencies(long[] direct, long[] bits){
+		for(int dependee = nextSetBit(direct, 0); dependee >= 0; dependee = nextSetBit(direct, dependee + 1)){
+			long[] dependencies = trueDependencies[dependee];
+			for(int i = 0; i < bits.length; i++){
+				bits[i] |= dependencies[i];
+			}
+			setBit(bits, dependee);
+		}
+	}
+	
 	/**Retrieve the {@link List} of {@link String}s representing the {@link Path}s to each {@link Mod} listed in the
 	 * Settings File at the given Path.
 	 * @param settingsFile Path where the Settings File is
@@ -388,33 +1139,44 @@ public class ModList implements Closeable{
 		GlobalState.log("Parsing settings file...");
 		File file = settingsFile.toFile();
 		FileReader fileReader = new FileReader(file);
-		CkiiLexer lexer = new CkiiLexer(CharStreams.fromReader(fileReader));
-		CkiiParser parser = new CkiiParser(new CommonTokenStream(lexer));
-		parser.setErrorHandler(new DefaultErrorStrategy());
-		CkiiParser.UnitContext unit = parser.unit();
-		
 		CkiiVisitor<List<String>> visitor = new ModListVisitor();
-		List<String> visit = visitor.visit(unit);
+		List<String> visit = ParserPool.forCurrentThread()
+				.visitScript(CharStreams.fromReader(fileReader), null, visitor);
 		GlobalState.log("Parsed settings file.");
 		return visit;
 	}
 	
-	/**Generates a {@link Map} that, for each {@link Definition} in the {@link Mod}s loaded in this ModList,
-	 * relates its Name {@link Definition#getName()} to all Definitions with equal Name.
-	 * @return The Mapping of Names to {@link List}s of Definition.
-	 */
-	private Map<String, List<Definition>> getDefinitionsMap(){
-		return Util.multiMapBy(unShadowedDefinitions, Definition::getName);
-	}
-	
-	/**Closes all {@link Mod}s in this List.
+	/**Closes all {@link Mod}s in this List, and discards the caches of the parsers used to read them.
+	 * If any files were re-parsed by {@link ModList#update(Collection)}, the {@link ParseCache} is saved beforehand.
+	 * Unless other ModLists are still open, the names in {@link GlobalState#symbols} are discarded as well.
 	 * @throws IOException iff any {@link Mod#close()} throws
 	 * @see Mod#close()
+	 * @see ParserPool#clearDFACaches()
+	 * @see SymbolTable#closeSession()
 	 */
 	@Override
 	public void close() throws IOException{
-		if(mods != null)
-			for(Mod mod : mods)
-				mod.close();
+		synchronized(this){
+			if(parseCache != null && parseCacheChanged){
+				parseCacheChanged = false;
+				parseCache.save();
+			}
+		}
+		try{
+			if(mods != null)
+				for(Mod mod : mods)
+					mod.close();
+		}finally{
+			synchronized(this){
+				if(symbolSession){
+					symbolSession = false;
+					if(GlobalState.symbols.closeSession())
+						GlobalState.log("Discarded all interned names.");
+				}
+			}
+		}
+		int states = ParserPool.clearDFACaches();
+		GlobalState.log(states < 0 ? "Parser caches will be discarded once all files are parsed."
+				: String.format("Discarded %d cached parser states.", states));
 	}
 }
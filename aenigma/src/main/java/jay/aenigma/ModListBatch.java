@@ -0,0 +1,138 @@
+package jay.aenigma;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Checks several {@link ModList}s, i.e. profiles of Settings Files, for conflicts at once, such as all profiles
+ * of a team that mostly share vanilla and a common core of {@link Mod}s. <br/>
+ * All ModLists share a single {@link ContentIndex} and {@link ParseCache}, so that each file of the Mods they share
+ * is read and parsed only once, by whichever ModList gets to it first, while the others merely share the
+ * {@link Definition}s found. Each ModList still resolves its own dependencies and builds its own
+ * {@link DefinitionTable}, since those depend on the list of Mods. The checks of all ModLists run in parallel.
+ * <p/>
+ * The ParseCache is loaded from the folder of the first Settings File, and saved there once all checks are done.
+ * The batch keeps a session of {@link GlobalState#symbols} open until it is closed, since the ContentIndex keeps the
+ * ids of the Names found.
+ */
+public final class ModListBatch implements Closeable{
+	
+	private final Map<Path, ModList> modLists = new LinkedHashMap<>();
+	private final ContentIndex contents = new ContentIndex();
+	private final ParseCache parseCache;
+	// whether the session of GlobalState.symbols opened by this batch is still open
+	private boolean symbolSession;
+	
+	/**Creates a new ModListBatch of the {@link ModList}s referenced by the given Settings Files.
+	 * @param settingsFiles Paths to the Settings Files, each of which contains a list of mods
+	 * @throws IOException if reading any Settings File fails for any reason
+	 * @throws IllegalArgumentException iff no Settings Files are given
+	 */
+	public ModListBatch(List<Path> settingsFiles) throws IOException{
+		if(settingsFiles.isEmpty())
+			throw new IllegalArgumentException("No settings files given.");
+		parseCache = GlobalState.useParseCache
+				? ParseCache.load(settingsFiles.get(0).toAbsolutePath().getParent().resolve(ParseCache.CACHE_FILE))
+				: null;
+		GlobalState.symbols.openSession();
+		symbolSession = true;
+		try{
+			for(Path settingsFile : settingsFiles){
+				if(!modLists.containsKey(settingsFile))
+					modLists.put(settingsFile, new ModList(settingsFile, contents, parseCache));
+			}
+		}catch(IOException e){
+			close();
+			throw e;
+		}
+	}
+	
+	/**Retrieves the {@link ModList}s of this batch by the Settings Files they were loaded from.
+	 * @return unmodifiable Map of Settings Files to ModLists, in the order they were given in
+	 */
+	public Map<Path, ModList> getModLists(){
+		return Collections.unmodifiableMap(modLists);
+	}
+	
+	/**Runs {@link ModList#runConflictCheck()} for all {@link ModList}s of this batch in parallel,
+	 * and waits until all of them are done.
+	 * @return Map relating each Settings File to the List of all Alerts encountered in its ModList
+	 * @throws InterruptedException iff interrupted while waiting for the checks
+	 */
+	public Map<Path, List<Alert>> runConflictChecks() throws InterruptedException{
+		return runConflictChecks(settingsFile -> null);
+	}
+	
+	/**Runs {@link ModList#runConflictCheck(Flow.Subscriber)} for all {@link ModList}s of this batch in parallel,
+	 * and waits until all of them are done. Afterwards, the shared {@link ParseCache} is saved.
+	 * @param subscribers the function that creates the {@link Flow.Subscriber} for the ModList of each Settings File,
+	 *                    which may return null
+	 * @return Map relating each Settings File to the List of all Alerts encountered in its ModList,
+	 * in the order they were given in
+	 * @throws InterruptedException iff interrupted while waiting for the checks
+	 */
+	public Map<Path, List<Alert>> runConflictChecks(Function<Path, Flow.Subscriber<? super Alert>> subscribers)
+			throws InterruptedException{
+		GlobalState.log(String.format("Checking %d mod lists.", modLists.size()));
+		long time = System.nanoTime();
+		// each check waits for its own tasks on the background executor, so the checks get threads of their own
+		ExecutorService checkExecutor = Executors.newFixedThreadPool(
+				Math.min(modLists.size(), Runtime.getRuntime().availableProcessors()));
+		Map<Path, List<Alert>> results = new LinkedHashMap<>();
+		try{
+			Map<Path, Future<List<Alert>>> futures = new LinkedHashMap<>();
+			modLists.forEach((settingsFile, modList) -> futures.put(settingsFile,
+					checkExecutor.submit(() -> modList.runConflictCheck(subscribers.apply(settingsFile)))));
+			for(Map.Entry<Path, Future<List<Alert>>> entry : futures.entrySet()){
+				try{
+					results.put(entry.getKey(), entry.getValue().get());
+				}catch(ExecutionException e){
+					GlobalState.log(e.getLocalizedMessage());
+					e.printStackTrace();
+					results.put(entry.getKey(), List.of());
+				}
+			}
+		}finally{
+			checkExecutor.shutdownNow();
+		}
+		time = (System.nanoTime() - time) / 1_000_000;
+		GlobalState.log(String.format("Checked %d mod lists, sharing the results of %d files (%d ms).",
+				modLists.size(), contents.getHits(), time));
+		if(parseCache != null){
+			GlobalState.log(String.format("Reused %d unchanged files from the parse cache.", parseCache.getHits()));
+			try{
+				parseCache.save();
+			}catch(IOException e){
+				e.printStackTrace();
+			}
+		}
+		return results;
+	}
+	
+	/**Closes all {@link ModList}s of this batch.
+	 * @throws IOException iff closing any ModList throws
+	 * @see ModList#close()
+	 */
+	@Override
+	public void close() throws IOException{
+		IOException exception = null;
+		for(ModList modList : modLists.values()){
+			try{
+				modList.close();
+			}catch(IOException e){
+				if(exception == null)
+					exception = e;
+			}
+		}
+		if(symbolSession){
+			symbolSession = false;
+			GlobalState.symbols.closeSession();
+		}
+		if(exception != null)
+			throw exception;
+	}
+}
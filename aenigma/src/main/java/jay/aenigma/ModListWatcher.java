@@ -0,0 +1,221 @@
+package jay.aenigma;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the folders of the {@link Mod}s in a {@link ModList}, as well as its Settings File and *.mod Files,
+ * using a {@link WatchService}. <br/>
+ * Whenever files of the Mods are created, modified or deleted, the ModList is {@link ModList#update(Collection)}d,
+ * so that only those files are re-parsed, and only the {@link Alert}s that concern them are reported.
+ * Whenever the Settings File or a *.mod File changes, a new ModList is loaded in its place and checked for conflicts
+ * instead, and the previous one is closed. The {@link DefinitionTable} of a ModList that is updated for long is
+ * compacted whenever the rows of re-parsed and deleted files outnumber half of the others.
+ * <p/>
+ * Changes are waited for on a single daemon thread, which also reports the resulting {@link Alert}s to a
+ * {@link ModListWatcher.Listener}. Files of watched ModLists are read onto the heap rather than memory-mapped,
+ * so that they are neither locked against saving them, nor truncated while mapped.
+ */
+public final class ModListWatcher implements Closeable{
+	
+	/** time to wait for further changes before updating, since editors tend to save a file in several steps*/
+	private static final long SETTLE_MILLIS = 50;
+	
+	/**
+	 * Receives the results of the updates performed by a {@link ModListWatcher}, on the thread of the watcher.
+	 */
+	public interface Listener{
+		/**Called after some files of the {@link Mod}s of the given {@link ModList} have changed and were re-parsed,
+		 * unless no {@link Alert}s were added or removed by that.
+		 * @param modList the updated ModList
+		 * @param delta the Alerts added to and removed from those previously encountered in the ModList
+		 */
+		void onUpdate(ModList modList, AlertDelta delta);
+		
+		/**Called after the Settings File or a *.mod File has changed, and the given {@link ModList} was loaded
+		 * and checked for conflicts in place of the previous one, which was closed.
+		 * @param modList the new ModList
+		 * @param alerts all {@link Alert}s encountered in the ModList, as by {@link ModList#runConflictCheck()}
+		 */
+		void onReload(ModList modList, List<Alert> alerts);
+	}
+	
+	private final Path settingsFile;
+	private final Path userDataFolder;
+	private final Listener listener;
+	private final WatchService watchService;
+	private final Set<Path> registeredFolders = new HashSet<>();
+	private final Thread thread;
+	private volatile ModList modList;
+	
+	private ModListWatcher(Path settingsFile, ModList modList, Listener listener) throws IOException{
+		this.settingsFile = settingsFile;
+		this.userDataFolder = settingsFile.getParent();
+		this.listener = listener;
+		this.modList = modList;
+		this.watchService = settingsFile.getFileSystem().newWatchService();
+		this.thread = new Thread(this::run, "ModListWatcher");
+		this.thread.setDaemon(true);
+	}
+	
+	/**Starts watching the files of the given {@link ModList}, which was loaded from the given Settings File.
+	 * The ModList should have been checked for conflicts before, but must not be closed until the returned
+	 * ModListWatcher is, unless it was replaced by another ModList, see {@link Listener#onReload(ModList, List)}.
+	 * @param settingsFile Path to the Settings File that the ModList was loaded from
+	 * @param modList the ModList to watch
+	 * @param listener the Listener to report the results of updates to
+	 * @return the new, running ModListWatcher
+	 * @throws IOException iff the folders of the ModList cannot be watched
+	 */
+	public static ModListWatcher watch(Path settingsFile, ModList modList, Listener listener) throws IOException{
+		ModListWatcher watcher = new ModListWatcher(settingsFile, modList, listener);
+		modList.setMapFiles(false);
+		try{
+			watcher.registerFolders();
+		}catch(IOException e){
+			watcher.watchService.close();
+			throw e;
+		}
+		watcher.thread.start();
+		return watcher;
+	}
+	
+	/**Retrieves the {@link ModList} currently being watched, which is replaced whenever the list of Mods changes.
+	 * @return the ModList
+	 */
+	public ModList getModList(){
+		return modList;
+	}
+	
+	/**Registers all folders that contain the Settings File, *.mod Files or files of a {@link GameFolder} of any
+	 * {@link Mod}, including any of their parent folders within the Mod, so that folders created later are noticed.
+	 * Folders that do not exist are skipped.
+	 * @throws IOException iff registering any folder fails
+	 */
+	private void registerFolders() throws IOException{
+		register(userDataFolder);
+		register(userDataFolder.resolve("mod"));
+		for(Mod mod : modList.getValues()){
+			if(mod.isZipped()){
+				register(mod.getPath().getParent());
+				continue;
+			}
+			Path root = mod.getPath();
+			register(root);
+			for(GameFolder gameFolder : GlobalState.game.getGameFolders()){
+				Path folder = root;
+				for(Path element : root.relativize(root.resolve(gameFolder.getPath()))){
+					folder = folder.resolve(element);
+					if(!register(folder))
+						break;
+				}
+			}
+		}
+	}
+	
+	private boolean register(Path folder) throws IOException{
+		if(registeredFolders.contains(folder))
+			return true;
+		if(!Files.isDirectory(folder))
+			return false;
+		folder.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+		registeredFolders.add(folder);
+		return true;
+	}
+	
+	private void run(){
+		try{
+			while(true){
+				WatchKey key = watchService.take();
+				Set<Path> changedPaths = new LinkedHashSet<>();
+				boolean overflow = false;
+				do{
+					overflow |= collectChanges(key, changedPaths);
+					key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+				}while(key != null);
+				
+				try{
+					if(overflow || changedPaths.stream().anyMatch(this::isModListFile)){
+						reload();
+					}
+					else if(!changedPaths.isEmpty()){
+						AlertDelta delta = modList.update(changedPaths);
+						if(delta != null && !delta.isEmpty())
+							listener.onUpdate(modList, delta);
+					}
+					registerFolders();
+				}catch(IOException | RuntimeException e){
+					GlobalState.log(e.getLocalizedMessage());
+					e.printStackTrace();
+				}
+			}
+		}catch(InterruptedException | ClosedWatchServiceException e){
+			// closed
+		}
+	}
+	
+	/**Adds the absolute {@link Path}s of all files changed according to the given {@link WatchKey} to the given
+	 * {@link Set}, and resets the key. Modifications of folders are skipped, since those only mean that their
+	 * contents changed, which is reported separately.
+	 * @param key the signalled WatchKey
+	 * @param changedPaths the Set to add the changed Paths to
+	 * @return true iff some changes were lost
+	 */
+	private boolean collectChanges(WatchKey key, Set<Path> changedPaths){
+		Path folder = (Path) key.watchable();
+		boolean overflow = false;
+		for(WatchEvent<?> event : key.pollEvents()){
+			if(event.kind() == OVERFLOW){
+				overflow = true;
+				continue;
+			}
+			Path path = folder.resolve((Path) event.context());
+			if(event.kind() == ENTRY_MODIFY && Files.isDirectory(path))
+				continue;
+			changedPaths.add(path);
+		}
+		if(!key.reset())
+			registeredFolders.remove(folder);
+		return overflow;
+	}
+	
+	private boolean isModListFile(Path path){
+		Path folder = path.getParent();
+		return path.equals(settingsFile) || path.getFileName().toString().endsWith(".mod")
+				&& (folder.equals(userDataFolder) || folder.equals(userDataFolder.resolve("mod")));
+	}
+	
+	/**Loads a new {@link ModList} from the Settings File and checks it for conflicts, after closing the current one.
+	 * If the Settings File cannot be read, the current ModList is kept.
+	 * @throws IOException iff closing the current ModList fails
+	 */
+	private void reload() throws IOException{
+		GlobalState.log("Reloading the mod list...");
+		ModList newModList;
+		try{
+			newModList = new ModList(settingsFile);
+		}catch(IOException e){
+			GlobalState.log(e.getLocalizedMessage());
+			return;
+		}
+		newModList.setMapFiles(false);
+		// saves the parse cache of the current ModList, so that the new one can use it
+		modList.close();
+		modList = newModList;
+		List<Alert> alerts = newModList.runConflictCheck();
+		listener.onReload(newModList, alerts);
+	}
+	
+	/**Stops watching. Does not close the {@link ModList} being watched.
+	 * @throws IOException iff closing the {@link WatchService} fails
+	 */
+	@Override
+	public void close() throws IOException{
+		watchService.close();
+	}
+}
@@ -0,0 +1,360 @@
+package jay.aenigma;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Persistent cache of the results of parsing {@link jay.aenigma.Mod.ModFile}s, i.e. their {@link Definition}s and
+ * parse error {@link Alert}s, so that files which did not change since the last run need not be parsed again.
+ * <p/>
+ * Each file is identified by its {@link Mod}, {@link GameFolder} and name, and fingerprinted by its size,
+ * modification time and SHA-256 digest. A file whose size and modification time are unchanged is assumed unchanged;
+ * otherwise, it is only parsed again if its digest changed as well. <br/>
+ * The whole cache is discarded if the properties of any {@link GameFolder} of the {@link Game} changed.
+ * <p/>
+ * A ParseCache may be queried and updated concurrently, but must only be {@link ParseCache#save()}d once all
+ * updates are done.
+ */
+public final class ParseCache{
+	
+	/**Name of the cache {@link java.io.File} within {@link Game#getUserDataFolder(Path)}*/
+	public static final String CACHE_FILE = "aenigma.cache";
+	
+	private static final int MAGIC = 0x41454E43;
+	// increment whenever the format, or the way Definitions are extracted, changes
+	private static final int VERSION = 3;
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final int DIGEST_LENGTH = 32;
+	private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+		try{
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}catch(NoSuchAlgorithmException e){
+			// every Java platform is required to support it
+			throw new IllegalStateException(e);
+		}
+	});
+	
+	private static final MergeBehaviour[] MERGE_BEHAVIOURS = MergeBehaviour.values();
+	private static final Severity[] SEVERITIES = Severity.values();
+	private static final Alert.Kind[] KINDS = Alert.Kind.values();
+	
+	/**
+	 * Immutable record of the fingerprint of a single file, and the results of parsing it.
+	 */
+	static final class Entry{
+		final long size;
+		final long modified;
+		final byte[] digest;
+		final String[] names;
+		final byte[] merges;
+		final byte[] severities;
+		final byte[] kinds;
+		final String[] definitionNames;
+		final String[] messages;
+		
+		private Entry(long size, long modified, byte[] digest, String[] names, byte[] merges,
+					  byte[] severities, byte[] kinds, String[] definitionNames, String[] messages){
+			this.size = size;
+			this.modified = modified;
+			this.digest = digest;
+			this.names = names;
+			this.merges = merges;
+			this.severities = severities;
+			this.kinds = kinds;
+			this.definitionNames = definitionNames;
+			this.messages = messages;
+		}
+		
+		/**Records the given results of parsing a file with the given fingerprint.
+		 * @param size the size of the file
+		 * @param modified the modification time of the file, in milliseconds
+		 * @param digest the {@link ParseCache#digest(ByteBuffer)} of the file
+		 * @param rows the rows of the {@link Definition}s found in the file
+		 * @param alerts the {@link Alert}s generated while parsing the file
+		 */
+		Entry(long size, long modified, byte[] digest, DefinitionTable.FileRows rows, List<Alert> alerts){
+			this.size = size;
+			this.modified = modified;
+			this.digest = digest;
+			int n = rows.size();
+			this.names = new String[n];
+			this.merges = new byte[n];
+			for(int i = 0; i < n; i++){
+				names[i] = GlobalState.symbols.name(rows.getName(i));
+				merges[i] = (byte) rows.getMergeBehaviour(i).ordinal();
+			}
+			int m = alerts.size();
+			this.severities = new byte[m];
+			this.kinds = new byte[m];
+			this.definitionNames = new String[m];
+			this.messages = new String[m];
+			for(int i = 0; i < m; i++){
+				Alert alert = alerts.get(i);
+				severities[i] = (byte) alert.getSeverity().ordinal();
+				kinds[i] = (byte) alert.getKind().ordinal();
+				definitionNames[i] = alert.getDefinitionName();
+				messages[i] = alert.getMessage();
+			}
+		}
+		
+		/**Returns true iff this Entry was recorded for a file of the given size and modification time.
+		 * @param size the size of the file
+		 * @param modified the modification time of the file, in milliseconds
+		 * @return true iff the file is assumed unchanged
+		 */
+		boolean matches(long size, long modified){
+			return this.size == size && this.modified == modified;
+		}
+		
+		/**Returns true iff this Entry was recorded for a file of the given size and digest.
+		 * @param size the size of the file
+		 * @param digest the {@link ParseCache#digest(ByteBuffer)} of the file
+		 * @return true iff the file's contents are unchanged
+		 */
+		boolean matchesContent(long size, byte[] digest){
+			return this.size == size && Arrays.equals(this.digest, digest);
+		}
+		
+		/**Creates a copy of this Entry with the given modification time.
+		 * @param modified the new modification time, in milliseconds
+		 * @return a new Entry
+		 */
+		Entry withModified(long modified){
+			return new Entry(size, modified, digest, names, merges, severities, kinds, definitionNames, messages);
+		}
+		
+		/**Adds the recorded {@link Definition}s to the given rows, and recreates the recorded {@link Alert}s
+		 * for the given {@link jay.aenigma.Mod.ModFile}.
+		 * @param modFile the ModFile that the Alerts shall refer to
+		 * @param rows the rows to add the Definitions to
+		 * @return the List of Alerts
+		 */
+		List<Alert> restore(Mod.ModFile modFile, DefinitionTable.FileRows rows){
+			for(int i = 0; i < names.length; i++){
+				rows.add(GlobalState.symbols.intern(names[i]), MERGE_BEHAVIOURS[merges[i]]);
+			}
+			if(messages.length == 0)
+				return List.of();
+			List<Alert> alerts = new ArrayList<>(messages.length);
+			for(int i = 0; i < messages.length; i++){
+				alerts.add(new Alert(SEVERITIES[severities[i]], KINDS[kinds[i]], modFile.getGameFolder(),
+						List.of(modFile), definitionNames[i], messages[i]));
+			}
+			return alerts;
+		}
+	}
+	
+	private final Path file;
+	private final Map<String, Entry> entries;
+	private final Set<String> used = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger hits = new AtomicInteger();
+	
+	private ParseCache(Path file, Map<String, Entry> entries){
+		this.file = file;
+		this.entries = entries;
+	}
+	
+	/**Retrieves the default location of the cache {@link java.io.File} for the current {@link GlobalState#game}.
+	 * @return the Path of the cache File, or null if there is no user data folder
+	 */
+	public static Path getDefaultFile(){
+		Path userDataFolder = GlobalState.game.getUserDataFolder(GlobalState.docsFolder);
+		return userDataFolder != null ? userDataFolder.resolve(CACHE_FILE) : null;
+	}
+	
+	/**Loads the ParseCache stored in the given {@link java.io.File}. If the File does not exist, cannot be read, or
+	 * was written for other {@link GameFolder} properties, then an empty ParseCache is returned instead.
+	 * @param file the Path of the cache File
+	 * @return the loaded ParseCache
+	 */
+	public static ParseCache load(Path file){
+		Map<String, Entry> entries = new ConcurrentHashMap<>();
+		if(file != null && Files.isReadable(file)){
+			try(DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new InflaterInputStream(Files.newInputStream(file))))){
+				if(in.readInt() == MAGIC && in.readInt() == VERSION && in.readInt() == getConfiguration()){
+					for(int count = in.readInt(); count > 0; count--){
+						String key = readString(in);
+						entries.put(key, readEntry(in));
+					}
+				}
+			}catch(IOException | RuntimeException e){
+				GlobalState.log("Discarding unreadable parse cache: " + e);
+				entries.clear();
+			}
+		}
+		return new ParseCache(file, entries);
+	}
+	
+	/**Retrieves the cache key of the given {@link jay.aenigma.Mod.ModFile}.
+	 * @param modFile the ModFile
+	 * @return the key
+	 */
+	static String getKey(Mod.ModFile modFile){
+		return modFile.getMod().getPath() + "|" + modFile.getGameFolder() + "|" + modFile.getName();
+	}
+	
+	/**Retrieves the Entry with the given key, if any.
+	 * @param key the key
+	 * @return the Entry, or null
+	 */
+	Entry get(String key){
+		used.add(key);
+		return entries.get(key);
+	}
+	
+	/**Records the given Entry with the given key, replacing any previous one.
+	 * @param key the key
+	 * @param entry the Entry
+	 */
+	void put(String key, Entry entry){
+		used.add(key);
+		entries.put(key, entry);
+	}
+	
+	/**
+	 * Counts a file that was restored from this ParseCache rather than parsed.
+	 */
+	void countHit(){
+		hits.incrementAndGet();
+	}
+	
+	/**Retrieves the number of files that were restored from this ParseCache rather than parsed.
+	 * @return the number of hits
+	 */
+	public int getHits(){
+		return hits.get();
+	}
+	
+	/**Writes this ParseCache to its {@link java.io.File}, replacing the previous contents. <br/>
+	 * Entries that were not used since loading are kept only if the {@link Mod} they belong to still exists,
+	 * so that switching between sets of Mods does not discard them.
+	 * @throws IOException iff writing the File fails
+	 */
+	public void save() throws IOException{
+		if(file == null)
+			return;
+		Map<String, Boolean> modExists = new HashMap<>();
+		entries.keySet().removeIf(key -> !used.contains(key) && !modExists.computeIfAbsent(
+				key.substring(0, key.indexOf('|')), mod -> Files.exists(Paths.get(mod))));
+		
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new DeflaterOutputStream(Files.newOutputStream(temp))))){
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(getConfiguration());
+			out.writeInt(entries.size());
+			for(Map.Entry<String, Entry> entry : entries.entrySet()){
+				writeString(out, entry.getKey());
+				writeEntry(out, entry.getValue());
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**Computes the digest of the remaining bytes of the given {@link ByteBuffer}, without consuming them.
+	 * Unlike a checksum, it is long enough that files of equal digest may be assumed to be byte-identical.
+	 * @param bytes the contents of a file
+	 * @return the SHA-256 of the contents
+	 */
+	static byte[] digest(ByteBuffer bytes){
+		MessageDigest digest = DIGESTS.get();
+		digest.update(bytes.duplicate());
+		return digest.digest();
+	}
+	
+	/**Computes a hash of all properties of the {@link GameFolder}s of {@link GlobalState#game} that affect parsing.*/
+	private static int getConfiguration(){
+		List<Object> properties = new ArrayList<>();
+		for(GameFolder gameFolder : GlobalState.game.getGameFolders()){
+			properties.add(gameFolder.toString());
+			properties.add(gameFolder.getPath());
+			properties.add(String.valueOf(gameFolder.getReservedNames()));
+			properties.add(gameFolder.getMergeBehaviour().name());
+			properties.add(String.valueOf(gameFolder.getFileNameRegex()));
+			properties.add(gameFolder.getNamingType().name());
+			properties.add(String.valueOf(gameFolder.getIdField()));
+			properties.add(gameFolder.getCharset().name());
+		}
+		return properties.hashCode();
+	}
+	
+	private static Entry readEntry(DataInputStream in) throws IOException{
+		long size = in.readLong();
+		long modified = in.readLong();
+		byte[] digest = new byte[DIGEST_LENGTH];
+		in.readFully(digest);
+		int n = in.readInt();
+		String[] names = new String[n];
+		byte[] merges = new byte[n];
+		for(int i = 0; i < n; i++){
+			names[i] = readString(in);
+			merges[i] = readOrdinal(in, MERGE_BEHAVIOURS.length);
+		}
+		int m = in.readInt();
+		byte[] severities = new byte[m];
+		byte[] kinds = new byte[m];
+		String[] definitionNames = new String[m];
+		String[] messages = new String[m];
+		for(int i = 0; i < m; i++){
+			severities[i] = readOrdinal(in, SEVERITIES.length);
+			kinds[i] = readOrdinal(in, KINDS.length);
+			definitionNames[i] = in.readBoolean() ? readString(in) : null;
+			messages[i] = readString(in);
+		}
+		return new Entry(size, modified, digest, names, merges, severities, kinds, definitionNames, messages);
+	}
+	
+	private static byte readOrdinal(DataInputStream in, int bound) throws IOException{
+		byte ordinal = in.readByte();
+		if(ordinal < 0 || ordinal >= bound)
+			throw new IOException("Invalid ordinal: " + ordinal);
+		return ordinal;
+	}
+	
+	// unlike readUTF, not limited to 65535 bytes, which parse error messages may quote more than
+	private static String readString(DataInputStream in) throws IOException{
+		int length = in.readInt();
+		if(length < 0)
+			throw new IOException("Invalid string length: " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static void writeString(DataOutputStream out, String string) throws IOException{
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static void writeEntry(DataOutputStream out, Entry entry) throws IOException{
+		out.writeLong(entry.size);
+		out.writeLong(entry.modified);
+		out.write(entry.digest);
+		out.writeInt(entry.names.length);
+		for(int i = 0; i < entry.names.length; i++){
+			writeString(out, entry.names[i]);
+			out.writeByte(entry.merges[i]);
+		}
+		out.writeInt(entry.messages.length);
+		for(int i = 0; i < entry.messages.length; i++){
+			out.writeByte(entry.severities[i]);
+			out.writeByte(entry.kinds[i]);
+			out.writeBoolean(entry.definitionNames[i] != null);
+			if(entry.definitionNames[i] != null)
+				writeString(out, entry.definitionNames[i]);
+			writeString(out, entry.messages[i]);
+		}
+	}
+}
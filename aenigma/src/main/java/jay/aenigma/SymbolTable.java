@@ -0,0 +1,171 @@
+package jay.aenigma;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread-safe table that interns identifiers, such as the Names of {@link Definition}s and
+ * {@link jay.aenigma.Mod.ModFile}s, and assigns each distinct one a dense int id, starting at 0. <br/>
+ * Equal identifiers are thus stored only once, and can be compared and hashed as ints.
+ * <p/>
+ * Looking up an identifier that is already present takes no lock and allocates nothing,
+ * even if it is given as a {@link CharSequence} other than a {@link String}.
+ * Ids are only valid for the SymbolTable that assigned them, and only for as long as any of its sessions is open:
+ * each {@link ModList} opens one once it starts checking for conflicts and closes it once it is closed, and once the
+ * last session closes, all identifiers are discarded and ids are assigned anew, starting at 0 again.
+ */
+public final class SymbolTable{
+	
+	private static final int INITIAL_CAPACITY = 1 << 12;
+	
+	/**
+	 * Open-addressing hash table from identifier to id + 1, where 0 marks an empty slot.
+	 * Replaced as a whole when it grows, so that readers never observe a partially rehashed table.
+	 */
+	private static final class Slots{
+		final AtomicIntegerArray ids;
+		final int mask;
+		
+		Slots(int capacity){
+			this.ids = new AtomicIntegerArray(capacity);
+			this.mask = capacity - 1;
+		}
+	}
+	
+	private volatile Slots slots = new Slots(INITIAL_CAPACITY);
+	private volatile String[] names = new String[INITIAL_CAPACITY / 2];
+	private int size = 0;
+	private int sessions = 0;
+	
+	/**Retrieves the id of the given identifier, assigning it a new one if it has not been interned before.
+	 * @param identifier the identifier
+	 * @return the id of the identifier
+	 */
+	public int intern(CharSequence identifier){
+		int hash = hash(identifier);
+		int id = find(slots, names, identifier, hash);
+		if(id >= 0)
+			return id;
+		synchronized(this){
+			Slots slots = this.slots;
+			String[] names = this.names;
+			id = find(slots, names, identifier, hash);
+			if(id >= 0)
+				return id;
+			
+			id = size++;
+			if(id == names.length){
+				names = Arrays.copyOf(names, names.length * 2);
+				this.names = names;
+			}
+			names[id] = identifier.toString();
+			if(size * 2 > slots.mask + 1){
+				slots = rehash(names, size - 1, (slots.mask + 1) * 2);
+				this.slots = slots;
+			}
+			insert(slots, hash, id);
+			return id;
+		}
+	}
+	
+	/**Retrieves the id of the given identifier, without interning it.
+	 * @param identifier the identifier
+	 * @return the id of the identifier, or -1 if it has not been interned
+	 */
+	public int lookup(CharSequence identifier){
+		int hash = hash(identifier);
+		int id = find(slots, names, identifier, hash);
+		if(id >= 0)
+			return id;
+		synchronized(this){
+			return find(slots, names, identifier, hash);
+		}
+	}
+	
+	/**Retrieves the identifier with the given id.
+	 * @param id an id assigned by this SymbolTable
+	 * @return the identifier
+	 * @throws IndexOutOfBoundsException iff the id was not assigned by this SymbolTable
+	 */
+	public String name(int id){
+		String[] names = this.names;
+		String name = id >= 0 && id < names.length ? names[id] : null;
+		if(name == null)
+			throw new IndexOutOfBoundsException("Unknown symbol id: " + id);
+		return name;
+	}
+	
+	/**Retrieves the number of identifiers interned so far, which is one greater than the greatest id assigned.
+	 * @return the number of identifiers
+	 */
+	public synchronized int size(){
+		return size;
+	}
+	
+	/**
+	 * Opens a session, during which all ids assigned by this SymbolTable remain valid.
+	 */
+	public synchronized void openSession(){
+		sessions++;
+	}
+	
+	/**Closes a session opened by {@link SymbolTable#openSession()}. If it was the last open session,
+	 * all identifiers are discarded, so that the table does not keep growing for as long as the process runs.
+	 * @return true iff the identifiers were discarded
+	 * @throws IllegalStateException iff no session is open
+	 */
+	public synchronized boolean closeSession(){
+		if(sessions == 0)
+			throw new IllegalStateException("No open session.");
+		if(--sessions > 0)
+			return false;
+		// the names are replaced first, so that readers never look up the previous names through the new slots
+		names = new String[INITIAL_CAPACITY / 2];
+		slots = new Slots(INITIAL_CAPACITY);
+		size = 0;
+		return true;
+	}
+	
+	private static int find(Slots slots, String[] names, CharSequence identifier, int hash){
+		for(int i = spread(hash) & slots.mask; ; i = (i + 1) & slots.mask){
+			int entry = slots.ids.get(i);
+			if(entry == 0)
+				return -1;
+			// a slot is only filled after its name was stored, but the names may have grown since they were read
+			String name = entry - 1 < names.length ? names[entry - 1] : null;
+			if(name == null)
+				return -1;
+			if(name.hashCode() == hash && name.contentEquals(identifier))
+				return entry - 1;
+		}
+	}
+	
+	private static Slots rehash(String[] names, int count, int capacity){
+		Slots slots = new Slots(capacity);
+		for(int id = 0; id < count; id++){
+			insert(slots, names[id].hashCode(), id);
+		}
+		return slots;
+	}
+	
+	private static void insert(Slots slots, int hash, int id){
+		int i = spread(hash) & slots.mask;
+		while(slots.ids.get(i) != 0){
+			i = (i + 1) & slots.mask;
+		}
+		slots.ids.set(i, id + 1);
+	}
+	
+	/**Computes the same hash code that {@link String#hashCode()} would for the given {@link CharSequence}.*/
+	private static int hash(CharSequence identifier){
+		int hash = 0;
+		for(int i = 0, n = identifier.length(); i < n; i++){
+			hash = 31 * hash + identifier.charAt(i);
+		}
+		return hash;
+	}
+	
+	private static int spread(int hash){
+		return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+	}
+}
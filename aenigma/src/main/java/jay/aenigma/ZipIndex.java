@@ -0,0 +1,290 @@
+package jay.aenigma;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only index of the entries of a zip archive, built by reading its central directory once. <br/>
+ * Replaces the zip {@link java.nio.file.FileSystem} for listing and reading the files of zipped {@link Mod}s:
+ * entries are listed by name without walking any directories, and each is inflated straight into a buffer
+ * with a single positional read, so that any number of entries may be read concurrently.
+ * <p/>
+ * Only stored and deflated entries of archives without Zip64 extensions are supported,
+ * which is all that zipped Mods use in practice; {@link ZipIndex#open(Path)} fails for Zip64 archives,
+ * and {@link ZipIndex#read(Entry)} for other entries.
+ */
+public final class ZipIndex implements Closeable{
+	
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int CEN_SIGNATURE = 0x02014b50;
+	private static final int LOC_SIGNATURE = 0x04034b50;
+	private static final int EOCD_SIZE = 22;
+	private static final int CEN_SIZE = 46;
+	private static final int LOC_SIZE = 30;
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+	
+	/**
+	 * A single file in a zip archive, as described by its central directory.
+	 */
+	public static final class Entry{
+		private final String name;
+		private final Path relativePath;
+		private final int method;
+		private final long compressedSize;
+		private final long size;
+		private final long modified;
+		private final long localHeaderOffset;
+		
+		private Entry(String name, Path relativePath, int method, long compressedSize, long size,
+					  long modified, long localHeaderOffset){
+			this.name = name;
+			this.relativePath = relativePath;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.modified = modified;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+		
+		/**Retrieves the name of this Entry, i.e. its path within the archive, separated by '/'.
+		 * @return the name
+		 */
+		public String getName(){
+			return name;
+		}
+		
+		/**Retrieves the name of this Entry as a relative {@link Path} of the default {@link java.nio.file.FileSystem}.
+		 * @return the relative Path
+		 */
+		public Path getRelativePath(){
+			return relativePath;
+		}
+		
+		/**Retrieves the uncompressed size of this Entry.
+		 * @return the size in bytes
+		 */
+		public long getSize(){
+			return size;
+		}
+		
+		/**Retrieves the modification time of this Entry, as stored in its MS-DOS date and time fields.
+		 * @return the modification time, in milliseconds
+		 */
+		public long getModified(){
+			return modified;
+		}
+	}
+	
+	private final FileChannel channel;
+	private final List<Entry> entries;
+	
+	private ZipIndex(FileChannel channel, List<Entry> entries){
+		this.channel = channel;
+		this.entries = entries;
+	}
+	
+	/**Opens the zip archive at the given {@link Path} and reads its central directory.
+	 * @param path the Path of the archive
+	 * @return a new ZipIndex, which must be {@link ZipIndex#close()}d
+	 * @throws ZipException iff the archive is malformed or uses unsupported features
+	 * @throws IOException iff reading the archive fails
+	 */
+	public static ZipIndex open(Path path) throws IOException{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try{
+			return new ZipIndex(channel, readCentralDirectory(channel));
+		}catch(IOException | RuntimeException e){
+			channel.close();
+			throw e;
+		}
+	}
+	
+	private static List<Entry> readCentralDirectory(FileChannel channel) throws IOException{
+		long archiveSize = channel.size();
+		// the end of central directory record is followed by a comment of at most 0xFFFF bytes
+		int tailSize = (int) Math.min(archiveSize, EOCD_SIZE + 0xFFFF);
+		ByteBuffer tail = read(channel, archiveSize - tailSize, tailSize);
+		int eocd = -1;
+		for(int i = tailSize - EOCD_SIZE; i >= 0; i--){
+			if(tail.getInt(i) == EOCD_SIGNATURE && i + EOCD_SIZE + (tail.getShort(i + 20) & 0xFFFF) == tailSize){
+				eocd = i;
+				break;
+			}
+		}
+		if(eocd < 0)
+			throw new ZipException("End of central directory not found");
+		int count = tail.getShort(eocd + 10) & 0xFFFF;
+		long directorySize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+		long directoryOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+		if(count == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL)
+			throw new ZipException("Zip64 archives are not supported");
+		if(directoryOffset + directorySize > archiveSize - tailSize + eocd)
+			throw new ZipException("Invalid central directory");
+		
+		ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+		List<Entry> entries = new ArrayList<>(count);
+		int position = 0;
+		for(int i = 0; i < count; i++){
+			if(position + CEN_SIZE > directory.limit() || directory.getInt(position) != CEN_SIGNATURE)
+				throw new ZipException("Invalid central directory entry");
+			int flags = directory.getShort(position + 8) & 0xFFFF;
+			int method = directory.getShort(position + 10) & 0xFFFF;
+			int time = directory.getShort(position + 12) & 0xFFFF;
+			int date = directory.getShort(position + 14) & 0xFFFF;
+			long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+			long size = directory.getInt(position + 24) & 0xFFFFFFFFL;
+			int nameLength = directory.getShort(position + 28) & 0xFFFF;
+			int extraLength = directory.getShort(position + 30) & 0xFFFF;
+			int commentLength = directory.getShort(position + 32) & 0xFFFF;
+			long localHeaderOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+			if(position + CEN_SIZE + nameLength > directory.limit())
+				throw new ZipException("Invalid central directory entry");
+			
+			byte[] nameBytes = new byte[nameLength];
+			directory.position(position + CEN_SIZE);
+			directory.get(nameBytes);
+			// like the zip FileSystem, names are read as UTF-8 regardless of the language encoding flag
+			String name = new String(nameBytes, StandardCharsets.UTF_8);
+			position += CEN_SIZE + nameLength + extraLength + commentLength;
+			
+			if(name.endsWith("/"))
+				continue;
+			if(size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL)
+				throw new ZipException("Zip64 archives are not supported");
+			Path relativePath;
+			try{
+				relativePath = Paths.get(name);
+			}catch(InvalidPathException e){
+				GlobalState.log(String.format("Skipping zip entry with invalid name \"%s\".", name));
+				continue;
+			}
+			// encrypted entries are marked as such, so that reading them fails
+			entries.add(new Entry(name, relativePath, (flags & 1) != 0 ? -1 : method, compressedSize, size,
+					toMillis(date, time), localHeaderOffset));
+		}
+		return Collections.unmodifiableList(entries);
+	}
+	
+	/**Converts an MS-DOS date and time, in local time, to milliseconds since the epoch.*/
+	private static long toMillis(int date, int time){
+		try{
+			return LocalDateTime.of(((date >> 9) & 0x7F) + 1980, (date >> 5) & 0x0F, date & 0x1F,
+					(time >> 11) & 0x1F, (time >> 5) & 0x3F, (time << 1) & 0x3E)
+					.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		}catch(RuntimeException e){
+			return 0;
+		}
+	}
+	
+	/**Retrieves all entries of the archive, in the order of its central directory. Directories are omitted.
+	 * @return unmodifiable List of Entries
+	 */
+	public List<Entry> getEntries(){
+		return entries;
+	}
+	
+	/**Retrieves the entries that are direct children of the given folder, and whose file names match the given
+	 * {@link Pattern}, just like {@link FolderUtils#getFilesInDir(Path, Pattern)} would for an extracted archive.
+	 * @param folder the path of the folder within the archive, such as {@link GameFolder#getPath()}
+	 * @param pattern Pattern to match file names against
+	 * @return List of matching Entries, in the order of the central directory
+	 */
+	public List<Entry> list(String folder, Pattern pattern){
+		String prefix = folder.isEmpty() || folder.endsWith("/") ? folder : folder + "/";
+		Predicate<String> predicate = pattern.asPredicate();
+		List<Entry> result = new ArrayList<>();
+		for(Entry entry : entries){
+			String name = entry.name;
+			if(name.length() > prefix.length() && name.startsWith(prefix) && name.indexOf('/', prefix.length()) < 0
+					&& predicate.test(name.substring(prefix.length())))
+				result.add(entry);
+		}
+		return result;
+	}
+	
+	/**Reads and, if necessary, inflates the contents of the given Entry. May be called concurrently.
+	 * @param entry an Entry of this ZipIndex
+	 * @return read-only {@link ByteBuffer} with the Entry's contents, positioned at its start
+	 * @throws ZipException iff the Entry is malformed
+	 * @throws IOException iff reading the archive fails
+	 */
+	public ByteBuffer read(Entry entry) throws IOException{
+		if(entry.method != STORED && entry.method != DEFLATED)
+			throw new ZipException(String.format("Unsupported compression method or encryption: %s", entry.name));
+		if(entry.size > Integer.MAX_VALUE - 8 || entry.compressedSize > Integer.MAX_VALUE - 8)
+			throw new ZipException("Entry too large: " + entry.name);
+		ByteBuffer header = read(channel, entry.localHeaderOffset, LOC_SIZE);
+		if(header.getInt(0) != LOC_SIGNATURE)
+			throw new ZipException("Invalid local header: " + entry.name);
+		long dataOffset = entry.localHeaderOffset + LOC_SIZE
+				+ (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+		if(entry.method == STORED)
+			return read(channel, dataOffset, ByteBuffer.allocate((int) entry.compressedSize)).asReadOnlyBuffer();
+		
+		// without the zlib wrapper, the inflater may need an extra dummy byte of input
+		ByteBuffer buffer = ByteBuffer.allocate((int) entry.compressedSize + 1);
+		buffer.limit((int) entry.compressedSize);
+		ByteBuffer data = read(channel, dataOffset, buffer);
+		byte[] bytes = new byte[(int) entry.size];
+		Inflater inflater = new Inflater(true);
+		try{
+			inflater.setInput(data.array(), 0, data.limit() + 1);
+			int length = 0;
+			while(length < bytes.length){
+				int inflated = inflater.inflate(bytes, length, bytes.length - length);
+				if(inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				length += inflated;
+			}
+			if(length != bytes.length)
+				throw new ZipException("Invalid entry size: " + entry.name);
+		}catch(DataFormatException e){
+			throw new ZipException("Invalid deflated data in " + entry.name + ": " + e.getMessage());
+		}finally{
+			inflater.end();
+		}
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+	
+	/**Reads the given number of bytes at the given position into a new little-endian heap buffer.*/
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException{
+		return read(channel, position, ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN));
+	}
+	
+	/**Fills the remaining space of the given buffer with the bytes at the given position, and flips it.*/
+	private static ByteBuffer read(FileChannel channel, long position, ByteBuffer buffer) throws IOException{
+		while(buffer.hasRemaining()){
+			if(channel.read(buffer, position + buffer.position()) < 0)
+				throw new ZipException("Unexpected end of archive");
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**Closes the archive. Entries can no longer be read afterwards.
+	 * @throws IOException iff closing the archive fails
+	 */
+	@Override
+	public void close() throws IOException{
+		channel.close();
+	}
+}
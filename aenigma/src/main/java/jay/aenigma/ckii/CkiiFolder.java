@@ -1,10 +1,13 @@
 package jay.aenigma.ckii;
 
+import jay.aenigma.ExtractionPlan;
 import jay.aenigma.FolderUtils;
 import jay.aenigma.GameFolder;
 import jay.aenigma.MergeBehaviour;
 
 import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 public enum CkiiFolder implements GameFolder{
@@ -104,6 +107,15 @@ public enum CkiiFolder implements GameFolder{
 	
 	;
 	
+	private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+	private static final Map<CkiiFolder, ExtractionPlan> extractionPlans = new EnumMap<>(CkiiFolder.class);
+	
+	static {
+		for(CkiiFolder folder : values()){
+			extractionPlans.put(folder, new ExtractionPlan(folder));
+		}
+	}
+	
 	String pathPrefix = "common/";
 	MergeBehaviour mergeBehaviour;
 	
@@ -170,7 +182,12 @@ public enum CkiiFolder implements GameFolder{
 	
 	@Override
 	public Charset getCharset(){
-		return Charset.forName("windows-1252");
+		return WINDOWS_1252;
+	}
+	
+	@Override
+	public ExtractionPlan getExtractionPlan(){
+		return extractionPlans.get(this);
 	}
 	
 	/// Constructors (all relevant combinations)
@@ -216,12 +216,6 @@ public class TreeNode extends Node<StringNodeData>{
 	}
 	
 	public static TreeNode valueOf(CharStream charStream){
-		CkiiLexer lexer = new CkiiLexer(charStream);
-		CkiiParser parser = new CkiiParser(new CommonTokenStream(lexer));
-		parser.setErrorHandler(new DefaultErrorStrategy());
-		CkiiParser.UnitContext unit = parser.unit();
-		
-		NodeTreeVisitor visitor = new NodeTreeVisitor();
-		return visitor.visit(unit);
+		return ParserPool.forCurrentThread().visitScript(charStream, null, new NodeTreeVisitor());
 	}
 }
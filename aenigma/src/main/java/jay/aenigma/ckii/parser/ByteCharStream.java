@@ -0,0 +1,123 @@
+package jay.aenigma.ckii.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * {@link CharStream} over single-byte encoded input, that decodes each byte through a table when it is read. <br/>
+ * Unlike the CharStreams created by {@link CharStreams}, it neither decodes the input up front nor copies it,
+ * so that a memory-mapped {@link ByteBuffer} can be lexed in place. Produces the same chars as
+ * {@link CharStreams#fromPath(java.nio.file.Path, Charset)} would.
+ */
+public final class ByteCharStream implements CharStream{
+	
+	private final ByteBuffer bytes;
+	private final int offset;
+	private final int size;
+	private final char[] decodeTable;
+	private final String sourceName;
+	private int position = 0;
+	
+	/**Creates a new ByteCharStream over the remaining bytes of the given {@link ByteBuffer}.
+	 * The buffer itself is not modified, but must not be modified while this stream is in use.
+	 * @param bytes the input, encoded with charset
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} {@link Charset}
+	 * @param sourceName name of the input, e.g. its file name
+	 * @throws IllegalArgumentException iff the Charset is not supported.
+	 */
+	public ByteCharStream(ByteBuffer bytes, Charset charset, String sourceName){
+		this.bytes = bytes.duplicate();
+		this.offset = bytes.position();
+		this.size = bytes.remaining();
+		this.decodeTable = CkiiTokenizer.getDecodeTable(charset);
+		this.sourceName = sourceName;
+	}
+	
+	/**Creates a {@link CharStream} over the remaining bytes of the given {@link ByteBuffer}:
+	 * a ByteCharStream if the given {@link Charset} is {@link CkiiTokenizer#isSupported(Charset) supported},
+	 * or a decoded copy of the input otherwise.
+	 * @param bytes the input, encoded with charset
+	 * @param charset the Charset of the input
+	 * @param sourceName name of the input, e.g. its file name
+	 * @return a new CharStream
+	 */
+	public static CharStream of(ByteBuffer bytes, Charset charset, String sourceName){
+		if(CkiiTokenizer.isSupported(charset))
+			return new ByteCharStream(bytes, charset, sourceName);
+		return CharStreams.fromString(charset.decode(bytes.duplicate()).toString(), sourceName);
+	}
+	
+	@Override
+	public void consume(){
+		if(position >= size){
+			throw new IllegalStateException("cannot consume EOF");
+		}
+		position++;
+	}
+	
+	@Override
+	public int LA(int i){
+		int index;
+		if(i > 0)
+			index = position + i - 1;
+		else if(i < 0)
+			index = position + i;
+		else
+			return 0; // undefined
+		if(index < 0 || index >= size)
+			return IntStream.EOF;
+		return decodeTable[bytes.get(offset + index) & 0xFF];
+	}
+	
+	@Override
+	public int mark(){
+		return -1;
+	}
+	
+	@Override
+	public void release(int marker){
+	}
+	
+	@Override
+	public int index(){
+		return position;
+	}
+	
+	@Override
+	public void seek(int index){
+		position = index;
+	}
+	
+	@Override
+	public int size(){
+		return size;
+	}
+	
+	@Override
+	public String getSourceName(){
+		return sourceName != null && !sourceName.isEmpty() ? sourceName : IntStream.UNKNOWN_SOURCE_NAME;
+	}
+	
+	@Override
+	public String getText(Interval interval){
+		int start = Math.min(interval.a, size);
+		int length = Math.min(interval.b - interval.a + 1, size - start);
+		if(length <= 0)
+			return "";
+		char[] chars = new char[length];
+		for(int i = 0; i < length; i++){
+			chars[i] = decodeTable[bytes.get(offset + start + i) & 0xFF];
+		}
+		return new String(chars);
+	}
+	
+	@Override
+	public String toString(){
+		return getText(Interval.of(0, size - 1));
+	}
+}
@@ -0,0 +1,127 @@
+package jay.aenigma.ckii.parser;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * {@link TokenSource} that feeds the tokens of a {@link CkiiTokenizer} to a {@link CkiiParser},
+ * as a faster replacement for {@link CkiiLexer} on single-byte encoded input. <br/>
+ * Unless another {@link TokenFactory} is set, the text of the produced {@link Token}s is only decoded when it is
+ * requested. The input is only decoded into a {@link CharStream} if {@link CkiiTokenSource#getInputStream()} is called.
+ */
+public class CkiiTokenSource implements TokenSource{
+	
+	private final CkiiTokenizer tokenizer;
+	private final Charset charset;
+	private ByteBuffer buffer;
+	private String sourceName;
+	private final Pair<TokenSource, CharStream> source;
+	private TokenFactory<?> tokenFactory = CommonTokenFactory.DEFAULT;
+	private CharStream inputStream;
+	
+	/**Creates a new CkiiTokenSource over the remaining bytes of the given {@link ByteBuffer}.
+	 * @param buffer the input, encoded with charset
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} {@link Charset}
+	 * @param sourceName name of the input, e.g. its file name
+	 * @param errorListener the {@link ANTLRErrorListener} that token recognition errors are reported to, if any
+	 */
+	public CkiiTokenSource(ByteBuffer buffer, Charset charset, String sourceName, ANTLRErrorListener errorListener){
+		this.tokenizer = new CkiiTokenizer(charset);
+		this.tokenizer.reset(buffer);
+		this.tokenizer.setErrorListener(errorListener);
+		this.charset = charset;
+		this.buffer = buffer;
+		this.sourceName = sourceName;
+		this.source = new Pair<>(this, null);
+	}
+	
+	/**Restarts this CkiiTokenSource on the remaining bytes of the given {@link ByteBuffer},
+	 * which must be encoded with the same {@link Charset} as before. <br/>
+	 * Any {@link Token}s produced before whose text has not been requested yet are invalidated.
+	 * @param buffer the new input
+	 * @param sourceName name of the new input, e.g. its file name
+	 */
+	public void reset(ByteBuffer buffer, String sourceName){
+		this.tokenizer.reset(buffer);
+		this.buffer = buffer;
+		this.sourceName = sourceName;
+		this.inputStream = null;
+	}
+	
+	@Override
+	public Token nextToken(){
+		int type = tokenizer.nextToken();
+		if(tokenFactory != CommonTokenFactory.DEFAULT){
+			String text = type == Token.EOF ? "<EOF>" : tokenizer.getText();
+			return tokenFactory.create(source, type, text, Token.DEFAULT_CHANNEL, tokenizer.getStartIndex(),
+					tokenizer.getStopIndex(), tokenizer.getTokenLine(), tokenizer.getTokenCharPositionInLine());
+		}
+		LazyToken token = new LazyToken(source, type, tokenizer.getStartIndex(), tokenizer.getStopIndex());
+		token.setLine(tokenizer.getTokenLine());
+		token.setCharPositionInLine(tokenizer.getTokenCharPositionInLine());
+		return token;
+	}
+	
+	@Override
+	public int getLine(){
+		return tokenizer.getLine();
+	}
+	
+	@Override
+	public int getCharPositionInLine(){
+		return tokenizer.getCharPositionInLine();
+	}
+	
+	/**Retrieves the input as a {@link CharStream}, whose indices match those of the produced {@link Token}s.
+	 * It is created on the first call, by {@link ByteCharStream#of(ByteBuffer, Charset, String)}.
+	 * @return the CharStream of the current input
+	 */
+	@Override
+	public CharStream getInputStream(){
+		if(inputStream == null)
+			inputStream = ByteCharStream.of(buffer, charset, getSourceName());
+		return inputStream;
+	}
+	
+	@Override
+	public String getSourceName(){
+		return sourceName != null ? sourceName : IntStream.UNKNOWN_SOURCE_NAME;
+	}
+	
+	/**Sets the {@link TokenFactory} that creates the produced {@link Token}s. Any other than
+	 * {@link CommonTokenFactory#DEFAULT} receives the decoded text of each Token, but no {@link CharStream},
+	 * see {@link CkiiTokenSource#getInputStream()}.
+	 * @param factory the TokenFactory
+	 */
+	@Override
+	public void setTokenFactory(TokenFactory<?> factory){
+		this.tokenFactory = factory;
+	}
+	
+	@Override
+	public TokenFactory<?> getTokenFactory(){
+		return tokenFactory;
+	}
+	
+	/**
+	 * {@link CommonToken} that decodes its text from the input of the enclosing {@link CkiiTokenSource} on demand.
+	 */
+	private class LazyToken extends CommonToken{
+		private static final long serialVersionUID = 1L;
+		
+		LazyToken(Pair<TokenSource, CharStream> source, int type, int start, int stop){
+			super(source, type, DEFAULT_CHANNEL, start, stop);
+		}
+		
+		@Override
+		public String getText(){
+			if(text == null){
+				text = type == EOF ? "<EOF>" : tokenizer.getText(start, stop);
+			}
+			return text;
+		}
+	}
+}
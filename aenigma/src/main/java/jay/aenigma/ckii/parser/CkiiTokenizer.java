@@ -0,0 +1,476 @@
+package jay.aenigma.ckii.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Token;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hand-written tokenizer for the token set of {@link CkiiLexer}, which works directly on the bytes of a file
+ * encoded in a single-byte {@link Charset}, such as windows-1252. <br/>
+ * It produces exactly the same tokens as CkiiLexer, including the reported token recognition errors and the way
+ * the offending characters are skipped, but it does not decode the input into code points,
+ * and only allocates a {@link String} if the text of a token is explicitly requested.
+ * <p/>
+ * Usage: {@link CkiiTokenizer#reset(ByteBuffer)}, then call {@link CkiiTokenizer#nextToken()} until it returns
+ * {@link Token#EOF}, retrieving the properties of each token in between.
+ */
+public final class CkiiTokenizer{
+	
+	private static final int IDENTIFIER_CHAR = 1;
+	private static final int DIGIT = 2;
+	private static final int LETTER = 4;
+	
+	private static final byte[] charClasses = new byte[256];
+	private static final Map<Charset, char[]> decodeTables = new ConcurrentHashMap<>();
+	
+	static {
+		for(int c = 0; c < 256; c++){
+			int charClass = IDENTIFIER_CHAR;
+			switch(c){
+				case ' ': case '\t': case '\r': case '\n': case '"': case '=': case '{': case '}': case '#': case ';':
+					charClass = 0;
+					break;
+				default:
+					break;
+			}
+			if(c >= '0' && c <= '9')
+				charClass |= DIGIT;
+			if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_')
+				charClass |= LETTER;
+			charClasses[c] = (byte) charClass;
+		}
+	}
+	
+	private final char[] decodeTable;
+	private ANTLRErrorListener errorListener;
+	
+	private ByteBuffer buffer;
+	private int base;
+	private int limit;
+	private int position;
+	private int line;
+	private int lineStart;
+	
+	private int type;
+	private int start;
+	private int stop;
+	private int tokenLine;
+	private int tokenCharPositionInLine;
+	
+	/**Creates a new CkiiTokenizer for input encoded with the given {@link Charset}.
+	 * @param charset the Charset of the input, which must be {@link CkiiTokenizer#isSupported(Charset) supported}.
+	 * @throws IllegalArgumentException iff the Charset is not supported.
+	 */
+	public CkiiTokenizer(Charset charset){
+		this.decodeTable = getDecodeTable(charset);
+		reset(ByteBuffer.allocate(0));
+	}
+	
+	/**Checks whether the given {@link Charset} can be tokenized byte by byte,
+	 * i.e. whether it encodes every character with a single byte and is compatible with US-ASCII.
+	 * @param charset the Charset to check
+	 * @return true iff a CkiiTokenizer can be created for the given Charset
+	 */
+	public static boolean isSupported(Charset charset){
+		return decodeTables.containsKey(charset) || computeDecodeTable(charset) != null;
+	}
+	
+	/**Retrieves the table that maps each byte of the given {@link Charset} to the char it represents.
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} Charset
+	 * @return an array of 256 chars, indexed by unsigned byte value. Must not be modified.
+	 * @throws IllegalArgumentException iff the Charset is not supported.
+	 */
+	static char[] getDecodeTable(Charset charset){
+		char[] table = decodeTables.get(charset);
+		if(table == null){
+			table = computeDecodeTable(charset);
+			if(table == null)
+				throw new IllegalArgumentException("Not a single-byte, ASCII-compatible charset: " + charset);
+			decodeTables.putIfAbsent(charset, table);
+		}
+		return table;
+	}
+	
+	private static char[] computeDecodeTable(Charset charset){
+		if(!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f)
+			return null;
+		byte[] bytes = new byte[256];
+		for(int i = 0; i < 256; i++){
+			bytes[i] = (byte) i;
+		}
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		try{
+			CharBuffer chars = decoder.decode(ByteBuffer.wrap(bytes));
+			if(chars.remaining() != 256)
+				return null;
+			char[] table = new char[256];
+			chars.get(table);
+			for(int i = 0; i < 128; i++){
+				if(table[i] != i)
+					return null;
+			}
+			return table;
+		} catch(CharacterCodingException e){
+			return null;
+		}
+	}
+	
+	/**Sets the {@link ANTLRErrorListener} that token recognition errors are reported to, in the same format
+	 * that {@link CkiiLexer} would use. The recognizer passed to it is always null.
+	 * @param errorListener the listener, or null to ignore errors.
+	 */
+	public void setErrorListener(ANTLRErrorListener errorListener){
+		this.errorListener = errorListener;
+	}
+	
+	/**Restarts this tokenizer on the remaining bytes of the given {@link ByteBuffer}.
+	 * Character indices are relative to the buffer's current position. The buffer itself is not modified.
+	 * @param buffer the input
+	 */
+	public void reset(ByteBuffer buffer){
+		this.buffer = buffer;
+		this.base = buffer.position();
+		this.limit = buffer.limit();
+		this.position = base;
+		this.line = 1;
+		this.lineStart = base;
+		this.type = Token.INVALID_TYPE;
+		this.start = base;
+		this.stop = base - 1;
+		this.tokenLine = 1;
+		this.tokenCharPositionInLine = 0;
+	}
+	
+	/**Advances to the next token, skipping whitespace and comments.
+	 * @return the type of the next token, as defined in {@link CkiiLexer}, or {@link Token#EOF}.
+	 */
+	public int nextToken(){
+		while(position < limit){
+			start = position;
+			tokenLine = line;
+			tokenCharPositionInLine = position - lineStart;
+			int c = buffer.get(position) & 0xFF;
+			switch(c){
+				case ' ':
+				case '\t':
+				case '\n':
+					skipWhitespace();
+					continue;
+				case '\r':
+					if(position + 1 < limit && buffer.get(position + 1) == '\n'){
+						skipWhitespace();
+					}
+					else{
+						recognitionError(position + 1);
+					}
+					continue;
+				case '#':
+					skipComment();
+					continue;
+				case ';':
+					recognitionError(position);
+					continue;
+				case '"':{
+					int end = position + 1;
+					while(end < limit && buffer.get(end) != '"')
+						end++;
+					if(end < limit)
+						return emit(CkiiLexer.STRING_QUOTED, end + 1);
+					recognitionError(limit);
+					continue;
+				}
+				case '{':
+					return emit(CkiiLexer.LBRACE, position + 1);
+				case '}':
+					return emit(CkiiLexer.RBRACE, position + 1);
+				case '=':
+					return emit(CkiiLexer.OPERATOR, position + 1 < limit && buffer.get(position + 1) == '=' ?
+							position + 2 : position + 1);
+				case '<':
+				case '>':
+					if(position + 1 < limit && buffer.get(position + 1) == '=')
+						return emit(CkiiLexer.OPERATOR, position + 2);
+					return emitIdentifier();
+				default:
+					return emitIdentifier();
+			}
+		}
+		start = limit;
+		stop = limit - 1;
+		tokenLine = line;
+		tokenCharPositionInLine = position - lineStart;
+		type = Token.EOF;
+		return type;
+	}
+	
+	/**Determines which token type the lexer would choose for a maximal run of identifier characters,
+	 * i.e. the first rule in {@link CkiiLexer} that matches the entire run.
+	 */
+	private int classifyIdentifier(int start, int end){
+		int length = end - start;
+		int first = buffer.get(start) & 0xFF;
+		if(length == 1 && (first == '<' || first == '>'))
+			return CkiiLexer.OPERATOR;
+		if((charClasses[first] & LETTER) != 0){
+			if(length == 3 && first == 'y' && buffer.get(start + 1) == 'e' && buffer.get(start + 2) == 's')
+				return CkiiLexer.BOOL;
+			if(length == 2 && first == 'n' && buffer.get(start + 1) == 'o')
+				return CkiiLexer.BOOL;
+			int i = skip(start, end, LETTER);
+			if(i < end && buffer.get(i) == '.'){
+				int j = skip(i + 1, end, DIGIT);
+				if(j == end && j > i + 1)
+					return CkiiLexer.NAMESPACED_ID;
+			}
+			return CkiiLexer.IDENTIFIER;
+		}
+		int i = start;
+		if(first == '+' || first == '-')
+			i++;
+		int j = skip(i, end, DIGIT);
+		if(j == i)
+			return CkiiLexer.IDENTIFIER;
+		if(j == end)
+			return CkiiLexer.NUMBER;
+		if(buffer.get(j) != '.')
+			return CkiiLexer.IDENTIFIER;
+		int k = skip(j + 1, end, DIGIT);
+		if(k == j + 1)
+			return CkiiLexer.IDENTIFIER;
+		if(k == end)
+			return CkiiLexer.NUMBER;
+		if(i != start || buffer.get(k) != '.')
+			return CkiiLexer.IDENTIFIER;
+		int l = skip(k + 1, end, DIGIT);
+		return l == end && l > k + 1 ? CkiiLexer.DATE : CkiiLexer.IDENTIFIER;
+	}
+	
+	private int emitIdentifier(){
+		int end = skip(position + 1, limit, IDENTIFIER_CHAR);
+		return emit(classifyIdentifier(position, end), end);
+	}
+	
+	private int skip(int from, int end, int charClass){
+		while(from < end && (charClasses[buffer.get(from) & 0xFF] & charClass) != 0)
+			from++;
+		return from;
+	}
+	
+	private int emit(int type, int end){
+		this.type = type;
+		this.stop = end - 1;
+		if(type == CkiiLexer.STRING_QUOTED)
+			advance(end);
+		else
+			position = end;
+		return type;
+	}
+	
+	private void skipWhitespace(){
+		int end = position;
+		while(end < limit){
+			byte b = buffer.get(end);
+			if(b == ' ' || b == '\t')
+				end++;
+			else if(b == '\n')
+				newLine(++end);
+			else if(b == '\r' && end + 1 < limit && buffer.get(end + 1) == '\n')
+				newLine(end += 2);
+			else
+				break;
+		}
+		position = end;
+	}
+	
+	private void skipComment(){
+		int end = position + 1;
+		while(end < limit){
+			byte b = buffer.get(end);
+			if(b == '\n'){
+				newLine(position = end + 1);
+				return;
+			}
+			if(b == '\r'){
+				if(end + 1 < limit && buffer.get(end + 1) == '\n')
+					newLine(position = end + 2);
+				else
+					recognitionError(end + 1);
+				return;
+			}
+			end++;
+		}
+		position = end;
+	}
+	
+	/**Mimics the error recovery of {@link Lexer}: the error is reported with the text from the start of the token
+	 * up to and including the character at which no rule could continue, and that character is skipped as well.
+	 */
+	private void recognitionError(int failIndex){
+		if(errorListener != null){
+			String text = decode(start, Math.min(failIndex + 1, limit));
+			StringBuilder display = new StringBuilder(text.length());
+			for(int i = 0; i < text.length(); i++){
+				char c = text.charAt(i);
+				switch(c){
+					case '\n': display.append("\\n"); break;
+					case '\t': display.append("\\t"); break;
+					case '\r': display.append("\\r"); break;
+					default: display.append(c); break;
+				}
+			}
+			errorListener.syntaxError(null, null, tokenLine, tokenCharPositionInLine,
+					"token recognition error at: '" + display + "'", null);
+		}
+		advance(Math.min(failIndex + 1, limit));
+	}
+	
+	private void advance(int end){
+		for(int i = position; i < end; i++){
+			if(buffer.get(i) == '\n')
+				newLine(i + 1);
+		}
+		position = end;
+	}
+	
+	private void newLine(int nextLineStart){
+		line++;
+		lineStart = nextLineStart;
+	}
+	
+	private String decode(int from, int to){
+		char[] chars = new char[to - from];
+		for(int i = from; i < to; i++){
+			chars[i - from] = decodeTable[buffer.get(i) & 0xFF];
+		}
+		return new String(chars);
+	}
+	
+	/**Retrieves the type of the current token.
+	 * @return the type, as defined in {@link CkiiLexer}
+	 */
+	public int getType(){
+		return type;
+	}
+	
+	/**Retrieves the index of the first character of the current token, relative to the start of the input.
+	 * @return the start index
+	 */
+	public int getStartIndex(){
+		return start - base;
+	}
+	
+	/**Retrieves the index of the last character of the current token, relative to the start of the input.
+	 * @return the stop index
+	 */
+	public int getStopIndex(){
+		return stop - base;
+	}
+	
+	/**Retrieves the line that the current token starts on, starting at 1.
+	 * @return the line
+	 */
+	public int getTokenLine(){
+		return tokenLine;
+	}
+	
+	/**Retrieves the position of the current token in its line, starting at 0.
+	 * @return the position in line
+	 */
+	public int getTokenCharPositionInLine(){
+		return tokenCharPositionInLine;
+	}
+	
+	/**Retrieves the line that the tokenizer is currently at, starting at 1.
+	 * @return the line
+	 */
+	public int getLine(){
+		return line;
+	}
+	
+	/**Retrieves the position of the tokenizer in the current line, starting at 0.
+	 * @return the position in line
+	 */
+	public int getCharPositionInLine(){
+		return position - lineStart;
+	}
+	
+	/**Decodes the text of the current token.
+	 * @return the text of the current token, or "&lt;EOF&gt;" at the end of input.
+	 */
+	public String getText(){
+		return type == Token.EOF ? "<EOF>" : decode(start, stop + 1);
+	}
+	
+	/**Points the given {@link TextView} at the characters between the given indices,
+	 * which are relative to the start of the input.
+	 * @param view the TextView to reuse
+	 * @param startIndex index of the first character
+	 * @param stopIndex index of the last character
+	 * @return the given TextView
+	 */
+	public TextView getTextView(TextView view, int startIndex, int stopIndex){
+		view.from = base + startIndex;
+		view.to = base + stopIndex + 1;
+		return view;
+	}
+	
+	/**Creates a new {@link TextView} of the input of this tokenizer.
+	 * @return a new, empty TextView
+	 */
+	public TextView newTextView(){
+		return new TextView();
+	}
+	
+	/**
+	 * Reusable {@link CharSequence} view of a range of the input of a {@link CkiiTokenizer}, which decodes
+	 * characters as they are accessed. It is only valid until the tokenizer is {@link CkiiTokenizer#reset(ByteBuffer)}.
+	 */
+	public final class TextView implements CharSequence{
+		private int from = 0;
+		private int to = 0;
+		
+		private TextView(){}
+		
+		@Override
+		public int length(){
+			return to - from;
+		}
+		
+		@Override
+		public char charAt(int index){
+			if(index < 0 || index >= to - from)
+				throw new IndexOutOfBoundsException(index);
+			return decodeTable[buffer.get(from + index) & 0xFF];
+		}
+		
+		@Override
+		public CharSequence subSequence(int start, int end){
+			return toString().subSequence(start, end);
+		}
+		
+		@Override
+		public String toString(){
+			return decode(from, to);
+		}
+	}
+	
+	/**Decodes the characters between the given indices, which are relative to the start of the input.
+	 * @param startIndex index of the first character
+	 * @param stopIndex index of the last character
+	 * @return the decoded text
+	 */
+	public String getText(int startIndex, int stopIndex){
+		return decode(base + startIndex, base + stopIndex + 1);
+	}
+}
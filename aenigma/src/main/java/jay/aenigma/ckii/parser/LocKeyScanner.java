@@ -0,0 +1,162 @@
+package jay.aenigma.ckii.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+/**
+ * Scanner that extracts the keys of a localisation file directly from its bytes,
+ * as a faster replacement for {@link CkiiLocParser} and {@link LocKeyVisitor}. <br/>
+ * Keys are passed on as views of the input, so that they need not be decoded into a {@link String} unless required;
+ * the rest of each line is skipped eight bytes at a time.
+ * <p/>
+ * Just like the {@link CkiiLocParser}, it reads lines that are either a comment starting with '#',
+ * or a key immediately followed by ';', and silently stops at the first line that is neither. <br/>
+ * Whenever the CkiiLocParser would report an error, scanning stops as well but
+ * {@link LocKeyScanner#scan(ByteBuffer, Consumer)} returns false,
+ * in which case the input should be parsed by a CkiiLocParser in order to report the errors.
+ * <p/>
+ * A LocKeyScanner has no mutable state, and can be shared between threads.
+ */
+public final class LocKeyScanner{
+	
+	private static final boolean[] KEY_BYTE = new boolean[256];
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long CRS = '\r' * ONES;
+	private static final long LFS = '\n' * ONES;
+	
+	static{
+		for(int i = 0; i < 256; i++){
+			KEY_BYTE[i] = " \t\r\n\"={}#;".indexOf(i) < 0;
+		}
+	}
+	
+	private final char[] decodeTable;
+	
+	/**Creates a new LocKeyScanner for input encoded with the given {@link Charset}.
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} Charset
+	 * @throws IllegalArgumentException iff the Charset is not supported.
+	 */
+	public LocKeyScanner(Charset charset){
+		this.decodeTable = CkiiTokenizer.getDecodeTable(charset);
+	}
+	
+	/**Scans the remaining bytes of the given {@link ByteBuffer}, passing each key to the given {@link Consumer}
+	 * in the order they appear. If scanning fails, the consumer may already have received some of the keys. <br/>
+	 * The {@link CharSequence}s passed to the consumer are only valid for the duration of the call.
+	 * @param buffer the input
+	 * @param keyConsumer the Consumer to pass keys to
+	 * @return true iff the input was scanned without errors
+	 */
+	public boolean scan(ByteBuffer buffer, Consumer<CharSequence> keyConsumer){
+		ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		KeyView key = new KeyView(bytes);
+		int limit = bytes.limit();
+		int lineStart = bytes.position();
+		while(lineStart < limit){
+			int restStart;
+			byte first = bytes.get(lineStart);
+			if(first == '#'){
+				restStart = lineStart + 1;
+			}
+			else if(KEY_BYTE[first & 0xFF]){
+				int keyEnd = lineStart;
+				while(keyEnd < limit && KEY_BYTE[bytes.get(keyEnd) & 0xFF])
+					keyEnd++;
+				if(keyEnd == limit)
+					return false;
+				byte next = bytes.get(keyEnd);
+				if(next != ';'){
+					// the line starts with a string rather than a key, unless the key is followed by a line break
+					return next != '\r' && next != '\n';
+				}
+				key.from = lineStart;
+				key.to = keyEnd;
+				keyConsumer.accept(key);
+				restStart = keyEnd + 1;
+			}
+			else {
+				// only a carriage return without line feed is an error, anything else ends the input
+				return first != '\r' || (lineStart + 1 < limit && bytes.get(lineStart + 1) == '\n');
+			}
+			
+			int lineEnd = findLineEnd(bytes, restStart, limit);
+			if(lineEnd == limit)
+				return true;
+			if(bytes.get(lineEnd) == '\n')
+				lineStart = lineEnd + 1;
+			else if(lineEnd + 1 < limit && bytes.get(lineEnd + 1) == '\n')
+				lineStart = lineEnd + 2;
+			else
+				return false;
+		}
+		return true;
+	}
+	
+	/**Finds the first '\r' or '\n' at or after from, using a little-endian buffer.
+	 * @return the index of that byte, or limit if there is none
+	 */
+	private static int findLineEnd(ByteBuffer bytes, int from, int limit){
+		int i = from;
+		for(; i + Long.BYTES <= limit; i += Long.BYTES){
+			long word = bytes.getLong(i);
+			long matches = zeroBytes(word ^ CRS) | zeroBytes(word ^ LFS);
+			if(matches != 0)
+				return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+		}
+		for(; i < limit; i++){
+			byte b = bytes.get(i);
+			if(b == '\r' || b == '\n')
+				break;
+		}
+		return i;
+	}
+	
+	/**Marks each zero byte of the given word by setting its highest bit. <br/>
+	 * Bytes above the lowest zero byte may be marked falsely, which is why words are read little-endian.
+	 */
+	private static long zeroBytes(long word){
+		return (word - ONES) & ~word & HIGHS;
+	}
+	
+	/**
+	 * {@link CharSequence} that decodes a range of the input on demand.
+	 */
+	private final class KeyView implements CharSequence{
+		private final ByteBuffer bytes;
+		private int from;
+		private int to;
+		
+		KeyView(ByteBuffer bytes){
+			this.bytes = bytes;
+		}
+		
+		@Override
+		public int length(){
+			return to - from;
+		}
+		
+		@Override
+		public char charAt(int index){
+			if(index < 0 || index >= to - from)
+				throw new IndexOutOfBoundsException(index);
+			return decodeTable[bytes.get(from + index) & 0xFF];
+		}
+		
+		@Override
+		public CharSequence subSequence(int start, int end){
+			return toString().subSequence(start, end);
+		}
+		
+		@Override
+		public String toString(){
+			char[] chars = new char[to - from];
+			for(int i = from; i < to; i++){
+				chars[i - from] = decodeTable[bytes.get(i) & 0xFF];
+			}
+			return new String(chars);
+		}
+	}
+}
@@ -38,6 +38,13 @@ public class NodeTreeVisitor extends CkiiBaseVisitor<TreeNode>{
 		return new TreeNode(ctx.lhs.getText() + " " + ctx.OPERATOR().getText() + " "+ ctx.rhs.getText());
 	}
 	
+	@Override
+	public TreeNode visitBlock(CkiiParser.BlockContext ctx){
+		if(ctx.content == null)
+			return new TreeNode(TreeNode.BLOCK);
+		return ctx.content.accept(this);
+	}
+	
 	@Override
 	public TreeNode visitEmptyBlock(CkiiParser.EmptyBlockContext ctx){
 		return new TreeNode(TreeNode.BLOCK);
@@ -0,0 +1,243 @@
+package jay.aenigma.ckii.parser;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-confined set of lexers and parsers for script and localisation files, which are reused for each file
+ * instead of being created and configured anew. <br/>
+ * Every thread, in particular every worker of {@link jay.aenigma.GlobalState#backgroundExecutor},
+ * retrieves its own instance with {@link ParserPool#forCurrentThread()}.
+ * <p/>
+ * The parse trees produced by a ParserPool are only passed to the given visitor,
+ * after which all references to the input are released.
+ * Errors are reported to the {@link ANTLRErrorListener} given for each file,
+ * or to the {@link ConsoleErrorListener} if none is given.
+ */
+public final class ParserPool{
+	
+	private static final ThreadLocal<ParserPool> pools = ThreadLocal.withInitial(ParserPool::new);
+	private static final ByteBuffer EMPTY_BYTES = ByteBuffer.allocate(0);
+	/** held shared by every ANTLR parse, and exclusively while the DFA caches are cleared */
+	private static final ReentrantReadWriteLock parsing = new ReentrantReadWriteLock();
+	private static final AtomicBoolean clearPending = new AtomicBoolean();
+	
+	private final CharStream emptyChars = CharStreams.fromString("");
+	private final ErrorRelay errorRelay = new ErrorRelay();
+	
+	private final CkiiLexer lexer;
+	private final CommonTokenStream tokens;
+	private final CkiiParser parser;
+	private final CkiiLocLexer locLexer;
+	private final CommonTokenStream locTokens;
+	private final CkiiLocParser locParser;
+	private final Map<Charset, CkiiTokenSource> tokenSources = new HashMap<>();
+	private final Map<Charset, ScriptStreamParser> streamParsers = new HashMap<>();
+	private final Map<Charset, LocKeyScanner> locKeyScanners = new HashMap<>();
+	
+	private ParserPool(){
+		lexer = new CkiiLexer(emptyChars);
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(errorRelay);
+		tokens = new CommonTokenStream(lexer);
+		parser = new CkiiParser(tokens);
+		parser.setErrorHandler(new DefaultErrorStrategy());
+		parser.removeErrorListeners();
+		parser.addErrorListener(errorRelay);
+		
+		locLexer = new CkiiLocLexer(emptyChars);
+		locLexer.removeErrorListeners();
+		locLexer.addErrorListener(errorRelay);
+		locTokens = new CommonTokenStream(locLexer);
+		locParser = new CkiiLocParser(locTokens);
+		locParser.setErrorHandler(new DefaultErrorStrategy());
+		locParser.removeErrorListeners();
+		locParser.addErrorListener(errorRelay);
+	}
+	
+	/**Retrieves the ParserPool of the current {@link Thread}, creating it if necessary.
+	 * @return the ParserPool of the current Thread
+	 */
+	public static ParserPool forCurrentThread(){
+		return pools.get();
+	}
+	
+	/**Parses the given {@link CharStream} as a script file, and visits the resulting tree with the given visitor.
+	 * @param input the input
+	 * @param errorListener the {@link ANTLRErrorListener} to report errors to, or null
+	 * @param visitor the {@link CkiiVisitor} to visit the tree with
+	 * @param <T> return type of the visitor
+	 * @return the result of the visitor
+	 */
+	public <T> T visitScript(CharStream input, ANTLRErrorListener errorListener, CkiiVisitor<T> visitor){
+		errorRelay.target = errorListener;
+		lexer.setInputStream(input);
+		beginParse();
+		try{
+			return visit(lexer, visitor);
+		}finally{
+			endParse();
+			lexer.setInputStream(emptyChars);
+			errorRelay.target = null;
+		}
+	}
+	
+	/**Parses the remaining bytes of the given {@link ByteBuffer} as a script file using a {@link CkiiTokenSource},
+	 * and visits the resulting tree with the given visitor.
+	 * @param input the input, encoded with charset
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} {@link Charset}
+	 * @param sourceName name of the input, e.g. its file name
+	 * @param errorListener the {@link ANTLRErrorListener} to report errors to, or null
+	 * @param visitor the {@link CkiiVisitor} to visit the tree with
+	 * @param <T> return type of the visitor
+	 * @return the result of the visitor
+	 */
+	public <T> T visitScript(ByteBuffer input, Charset charset, String sourceName,
+							 ANTLRErrorListener errorListener, CkiiVisitor<T> visitor){
+		errorRelay.target = errorListener;
+		CkiiTokenSource tokenSource = tokenSources.computeIfAbsent(charset,
+				key -> new CkiiTokenSource(EMPTY_BYTES, key, null, errorRelay));
+		tokenSource.reset(input, sourceName);
+		beginParse();
+		try{
+			return visit(tokenSource, visitor);
+		}finally{
+			endParse();
+			tokenSource.reset(EMPTY_BYTES, null);
+			errorRelay.target = null;
+		}
+	}
+	
+	/**Parses the remaining bytes of the given {@link ByteBuffer} as a script file using a {@link ScriptStreamParser}.
+	 * @param input the input, encoded with charset
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} {@link Charset}
+	 * @param handler the {@link ScriptHandler} to report to
+	 * @return true iff the input was parsed without errors
+	 * @see ScriptStreamParser#parse(ByteBuffer, ScriptHandler)
+	 */
+	public boolean streamScript(ByteBuffer input, Charset charset, ScriptHandler handler){
+		return streamParsers.computeIfAbsent(charset, ScriptStreamParser::new).parse(input, handler);
+	}
+	
+	/**Scans the remaining bytes of the given {@link ByteBuffer} as a localisation file using a {@link LocKeyScanner}.
+	 * @param input the input, encoded with charset
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} {@link Charset}
+	 * @param keyConsumer the {@link Consumer} to pass keys to
+	 * @return true iff the input was scanned without errors
+	 * @see LocKeyScanner#scan(ByteBuffer, Consumer)
+	 */
+	public boolean scanLocalisation(ByteBuffer input, Charset charset, Consumer<CharSequence> keyConsumer){
+		return locKeyScanners.computeIfAbsent(charset, LocKeyScanner::new).scan(input, keyConsumer);
+	}
+	
+	/**Parses the given {@link CharStream} as a localisation file, and visits the resulting tree with the given visitor.
+	 * @param input the input
+	 * @param errorListener the {@link ANTLRErrorListener} to report errors to, or null
+	 * @param visitor the {@link CkiiLocVisitor} to visit the tree with
+	 * @param <T> return type of the visitor
+	 * @return the result of the visitor
+	 */
+	public <T> T visitLocalisation(CharStream input, ANTLRErrorListener errorListener, CkiiLocVisitor<T> visitor){
+		errorRelay.target = errorListener;
+		locLexer.setInputStream(input);
+		locTokens.setTokenSource(locLexer);
+		locParser.setTokenStream(locTokens);
+		beginParse();
+		try{
+			return locParser.unit().accept(visitor);
+		}finally{
+			endParse();
+			locLexer.setInputStream(emptyChars);
+			locTokens.setTokenSource(locLexer);
+			errorRelay.target = null;
+		}
+	}
+	
+	private <T> T visit(TokenSource tokenSource, CkiiVisitor<T> visitor){
+		tokens.setTokenSource(tokenSource);
+		parser.setTokenStream(tokens);
+		try{
+			return TwoStageParser.parseUnit(parser).accept(visitor);
+		}finally{
+			tokens.setTokenSource(lexer);
+		}
+	}
+	
+	private static void beginParse(){
+		parsing.readLock().lock();
+	}
+	
+	private static void endParse(){
+		parsing.readLock().unlock();
+		if(clearPending.get() && parsing.getReadLockCount() == 0)
+			tryClearDFACaches();
+	}
+	
+	/**Discards the {@link DFA} states that ANTLR caches for all lexers and parsers of script and localisation files.
+	 * <br/>
+	 * These caches are shared by all instances of a lexer or parser and only ever grow,
+	 * so they should be cleared whenever a session ends. Since other sessions may still be parsing files with them,
+	 * e.g. while a {@link jay.aenigma.ModListWatcher} reloads, the caches are then only cleared once the last of
+	 * those parses finishes.
+	 * @return the number of DFA states discarded, or -1 if the caches are cleared later
+	 */
+	public static int clearDFACaches(){
+		clearPending.set(true);
+		return tryClearDFACaches();
+	}
+	
+	private static int tryClearDFACaches(){
+		Lock lock = parsing.writeLock();
+		if(!lock.tryLock())
+			return -1;
+		try{
+			return clearPending.getAndSet(false) ? clearAll(forCurrentThread()) : 0;
+		}finally{
+			lock.unlock();
+		}
+	}
+	
+	private static int clearAll(ParserPool pool){
+		int states = countStates(pool.lexer.getInterpreter().decisionToDFA)
+				+ countStates(pool.parser.getInterpreter().decisionToDFA)
+				+ countStates(pool.locLexer.getInterpreter().decisionToDFA)
+				+ countStates(pool.locParser.getInterpreter().decisionToDFA);
+		pool.lexer.getInterpreter().clearDFA();
+		pool.parser.getInterpreter().clearDFA();
+		pool.locLexer.getInterpreter().clearDFA();
+		pool.locParser.getInterpreter().clearDFA();
+		return states;
+	}
+	
+	private static int countStates(DFA[] decisionToDFA){
+		int states = 0;
+		for(DFA dfa : decisionToDFA){
+			states += dfa.states.size();
+		}
+		return states;
+	}
+	
+	/**
+	 * {@link ANTLRErrorListener} that forwards syntax errors to the listener of the file currently being parsed.
+	 */
+	private static class ErrorRelay extends BaseErrorListener{
+		
+		private ANTLRErrorListener target;
+		
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+								int line, int charPositionInLine, String msg, RecognitionException e){
+			(target != null ? target : ConsoleErrorListener.INSTANCE)
+					.syntaxError(recognizer, offendingSymbol, line, charPositionInLine, msg, e);
+		}
+	}
+}
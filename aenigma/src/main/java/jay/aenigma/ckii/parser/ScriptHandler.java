@@ -0,0 +1,30 @@
+package jay.aenigma.ckii.parser;
+
+/**
+ * Receiver for the structure of a script file, as described by the grammar in Ckii.g4. <br/>
+ * Statements are reported in document order; blocks are reported by a call to
+ * {@link ScriptHandler#enterBlock(CharSequence)} and, if that returned true, their contents followed by a call to
+ * {@link ScriptHandler#exitBlock()}.
+ * <p/>
+ * The {@link CharSequence}s passed to a ScriptHandler are only guaranteed to be valid for the duration of the call.
+ */
+public interface ScriptHandler{
+	
+	/**Called at the start of a block, i.e. for a statement "key = { ... }",
+	 * or for an anonymous block within a block of blocks.
+	 * @param key text of the left-hand side of the statement, or null for an anonymous block.
+	 * @return true iff the contents of the block shall be reported.
+	 */
+	boolean enterBlock(CharSequence key);
+	
+	/**
+	 * Called at the end of a block whose {@link ScriptHandler#enterBlock(CharSequence)} returned true.
+	 */
+	void exitBlock();
+	
+	/**Called for a statement "key = value", where the value is not a block.
+	 * @param key text of the left-hand side of the statement
+	 * @param value text of the right-hand side of the statement
+	 */
+	void keyValue(CharSequence key, CharSequence value);
+}
@@ -0,0 +1,200 @@
+package jay.aenigma.ckii.parser;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming, event-driven parser for script files that accepts exactly the language of Ckii.g4,
+ * and reports its statements to a {@link ScriptHandler} without building a parse tree. <br/>
+ * It only keeps the current token, one token of lookahead and the kinds of the currently open blocks,
+ * so its memory use does not depend on the size of the input.
+ * <p/>
+ * It does not attempt any error recovery: on the first token recognition or syntax error, parsing stops and
+ * {@link ScriptStreamParser#parse(ByteBuffer, ScriptHandler)} returns false,
+ * in which case the input should be parsed by a {@link CkiiParser} in order to report the errors.
+ */
+public class ScriptStreamParser{
+	
+	private static final int STATEMENTS = 0;
+	private static final int EXPRESSIONS = 1;
+	private static final int BLOCKS = 2;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	
+	private final CkiiTokenizer tokenizer;
+	private final CkiiTokenizer.TextView keyView;
+	private final CkiiTokenizer.TextView valueView;
+	private boolean failed;
+	
+	private int type;
+	private int start;
+	private int stop;
+	private boolean hasLookahead;
+	private int lookaheadType;
+	private int lookaheadStart;
+	private int lookaheadStop;
+	
+	private int[] kinds = new int[32];
+	private int level;
+	private int mutedLevel;
+	
+	/**Creates a new ScriptStreamParser for input encoded with the given {@link Charset}.
+	 * @param charset a {@link CkiiTokenizer#isSupported(Charset) supported} Charset
+	 */
+	public ScriptStreamParser(Charset charset){
+		this.tokenizer = new CkiiTokenizer(charset);
+		this.tokenizer.setErrorListener(new BaseErrorListener(){
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+									int line, int charPositionInLine, String msg, RecognitionException e){
+				failed = true;
+			}
+		});
+		this.keyView = tokenizer.newTextView();
+		this.valueView = tokenizer.newTextView();
+	}
+	
+	/**Parses the remaining bytes of the given {@link ByteBuffer}, reporting all statements to the given
+	 * {@link ScriptHandler}. If parsing fails, the handler may already have received some of the statements. <br/>
+	 * No reference to the buffer is retained after this method returns.
+	 * @param buffer the input
+	 * @param handler the ScriptHandler to report to
+	 * @return true iff the input was parsed without errors
+	 */
+	public boolean parse(ByteBuffer buffer, ScriptHandler handler){
+		tokenizer.reset(buffer);
+		try{
+			return parse(handler);
+		}finally{
+			tokenizer.reset(EMPTY);
+		}
+	}
+	
+	private boolean parse(ScriptHandler handler){
+		failed = false;
+		hasLookahead = false;
+		level = 0;
+		mutedLevel = -1;
+		next();
+		while(!failed){
+			switch(level == 0 ? STATEMENTS : kinds[level - 1]){
+				case STATEMENTS:
+					if(level == 0 && type == Token.EOF)
+						return true;
+					if(level > 0 && type == CkiiLexer.RBRACE){
+						closeBlock(handler);
+						break;
+					}
+					if(!isExpression(type))
+						return false;
+					int keyStart = start;
+					int keyStop = stop;
+					next();
+					if(type != CkiiLexer.OPERATOR)
+						return false;
+					next();
+					if(type == CkiiLexer.LBRACE){
+						openBlock(handler, tokenizer.getTextView(keyView, keyStart, keyStop));
+					}
+					else if(isExpression(type)){
+						if(mutedLevel < 0)
+							handler.keyValue(tokenizer.getTextView(keyView, keyStart, keyStop),
+									tokenizer.getTextView(valueView, start, stop));
+						next();
+					}
+					else {
+						return false;
+					}
+					break;
+				case EXPRESSIONS:
+					if(type == CkiiLexer.RBRACE)
+						closeBlock(handler);
+					else if(isExpression(type))
+						next();
+					else
+						return false;
+					break;
+				case BLOCKS:
+					if(type == CkiiLexer.RBRACE)
+						closeBlock(handler);
+					else if(type == CkiiLexer.LBRACE)
+						openBlock(handler, null);
+					else
+						return false;
+					break;
+				default:
+					throw new IllegalStateException("Unexpected block kind: " + kinds[level - 1]);
+			}
+		}
+		return false;
+	}
+	
+	/**Opens the block whose opening brace is the current token, and decides which kind of block it is.*/
+	private void openBlock(ScriptHandler handler, CharSequence key){
+		if(level == kinds.length)
+			kinds = Arrays.copyOf(kinds, level * 2);
+		level++;
+		if(mutedLevel < 0 && !handler.enterBlock(key))
+			mutedLevel = level;
+		next();
+		if(type == CkiiLexer.LBRACE || type == CkiiLexer.RBRACE){
+			kinds[level - 1] = BLOCKS;
+		}
+		else {
+			kinds[level - 1] = peek() == CkiiLexer.OPERATOR ? STATEMENTS : EXPRESSIONS;
+		}
+	}
+	
+	/**Closes the block whose closing brace is the current token.*/
+	private void closeBlock(ScriptHandler handler){
+		if(level == mutedLevel)
+			mutedLevel = -1;
+		else if(mutedLevel < 0)
+			handler.exitBlock();
+		level--;
+		next();
+	}
+	
+	private void next(){
+		if(hasLookahead){
+			hasLookahead = false;
+			type = lookaheadType;
+			start = lookaheadStart;
+			stop = lookaheadStop;
+		}
+		else {
+			type = tokenizer.nextToken();
+			start = tokenizer.getStartIndex();
+			stop = tokenizer.getStopIndex();
+		}
+	}
+	
+	private int peek(){
+		if(!hasLookahead){
+			hasLookahead = true;
+			lookaheadType = tokenizer.nextToken();
+			lookaheadStart = tokenizer.getStartIndex();
+			lookaheadStop = tokenizer.getStopIndex();
+		}
+		return lookaheadType;
+	}
+	
+	private static boolean isExpression(int type){
+		switch(type){
+			case CkiiLexer.STRING_QUOTED:
+			case CkiiLexer.IDENTIFIER:
+			case CkiiLexer.NAMESPACED_ID:
+			case CkiiLexer.NUMBER:
+			case CkiiLexer.DATE:
+			case CkiiLexer.BOOL:
+				return true;
+			default:
+				return false;
+		}
+	}
+}
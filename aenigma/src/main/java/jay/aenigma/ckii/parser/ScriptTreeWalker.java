@@ -0,0 +1,50 @@
+package jay.aenigma.ckii.parser;
+
+/**
+ * Visitor that reports the statements of a parse tree to a {@link ScriptHandler},
+ * skipping any blocks the handler is not interested in.
+ */
+public class ScriptTreeWalker extends CkiiBaseVisitor<Void>{
+	
+	private final ScriptHandler handler;
+	
+	/**Creates a new ScriptTreeWalker that reports to the given {@link ScriptHandler}.
+	 * @param handler the ScriptHandler
+	 */
+	public ScriptTreeWalker(ScriptHandler handler){
+		this.handler = handler;
+	}
+	
+	@Override
+	public Void visitBlockStatement(CkiiParser.BlockStatementContext ctx){
+		if(handler.enterBlock(ctx.lhs.getText())){
+			if(ctx.rhs != null)
+				ctx.rhs.accept(this);
+			handler.exitBlock();
+		}
+		return null;
+	}
+	
+	@Override
+	public Void visitExpressionStatement(CkiiParser.ExpressionStatementContext ctx){
+		if(ctx.rhs != null)
+			handler.keyValue(ctx.lhs.getText(), ctx.rhs.getText());
+		return null;
+	}
+	
+	@Override
+	public Void visitExpressionBlock(CkiiParser.ExpressionBlockContext ctx){
+		return null;
+	}
+	
+	@Override
+	public Void visitBlockBlock(CkiiParser.BlockBlockContext ctx){
+		for(CkiiParser.BlockContext blockContext : ctx.block()){
+			if(handler.enterBlock(null)){
+				blockContext.accept(this);
+				handler.exitBlock();
+			}
+		}
+		return null;
+	}
+}
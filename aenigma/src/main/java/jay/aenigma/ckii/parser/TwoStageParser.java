@@ -0,0 +1,57 @@
+package jay.aenigma.ckii.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility for parsing script files in two stages, as recommended for ANTLR 4: <br/>
+ * The first stage uses the faster {@link PredictionMode#SLL} prediction and bails out on the first syntax error.
+ * Only if that happens, the input is parsed again in full {@link PredictionMode#LL} mode,
+ * with the error handling the {@link CkiiParser} was configured with. <br/>
+ * Since the grammar is unambiguous, both stages produce identical parse trees for all input the first stage accepts.
+ */
+public final class TwoStageParser{
+	
+	private TwoStageParser(){
+	}
+	
+	/**Parses a {@link CkiiParser.UnitContext} with the given {@link CkiiParser},
+	 * as described {@link TwoStageParser above}.
+	 * <p/>
+	 * Syntax errors are only reported to the parser's {@link ANTLRErrorListener}s during the second stage,
+	 * i.e. exactly once. Token recognition errors are only reported once as well,
+	 * as long as the parser reads from a buffered {@link org.antlr.v4.runtime.TokenStream}
+	 * such as a {@link org.antlr.v4.runtime.CommonTokenStream}.
+	 * @param parser the CkiiParser to parse with, positioned at the start of its input
+	 * @return the parse tree
+	 */
+	public static CkiiParser.UnitContext parseUnit(CkiiParser parser){
+		ANTLRErrorStrategy errorHandler = parser.getErrorHandler();
+		List<ANTLRErrorListener> errorListeners = new ArrayList<>(parser.getErrorListeners());
+		
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.removeErrorListeners();
+		CkiiParser.UnitContext unit;
+		try{
+			unit = parser.unit();
+		}catch(ParseCancellationException e){
+			unit = null;
+		}
+		
+		parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+		parser.setErrorHandler(errorHandler);
+		errorListeners.forEach(parser::addErrorListener);
+		if(unit == null){
+			parser.reset();
+			unit = parser.unit();
+		}
+		return unit;
+	}
+}
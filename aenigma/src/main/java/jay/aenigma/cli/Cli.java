@@ -0,0 +1,397 @@
+package jay.aenigma.cli;
+
+import jay.aenigma.*;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless entry point, which checks the mod list of a {@link Game} for conflicts without starting the
+ * {@link jay.aenigma.gui.Gui}, e.g. as a hook that runs before the game is launched. <br/>
+ * Each {@link Alert} is written to stdout as soon as it is found, as a single line of JSON (NDJSON):
+ * <pre>
+ * {"severity":"WARNING","kind":"FILE_CONFLICT","folder":"TRAITS","definition":null,"message":"...",
+ *  "files":[{"mod":"...","path":"common\\traits\\00_traits.txt"}, ...]}
+ * </pre>
+ * If several Settings Files are given, their mod lists are checked at once by a {@link ModListBatch}, which parses
+ * the files of the mods they share only once, and each Alert additionally names the Settings File it was found for,
+ * as its "profile". <br/>
+ * The exit status is 0 if no Alerts were written, 1 if any were, and 2 if the arguments or folders are invalid.
+ * <p/>
+ * With --serve, a {@link Daemon} is started instead, which keeps the mod list parsed and answers requests on a
+ * loopback socket until it is stopped. With --connect, the Alerts are requested from a running Daemon rather than
+ * found by parsing the mods, which takes milliseconds rather than seconds.
+ * <p/>
+ * Does not load any JavaFX classes, and does not require a display.
+ */
+public final class Cli{
+	
+	private static final int EXIT_OK = 0;
+	private static final int EXIT_ALERTS = 1;
+	private static final int EXIT_USAGE = 2;
+	
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: aenigma-cli [options]",
+			"Checks the active mods of a game for conflicts, and writes each alert to stdout as a line of JSON.",
+			"",
+			"  -g, --game-path <folder>      the game's install folder, i.e. the one containing its executable",
+			"                                (default: found through Steam)",
+			"  -d, --docs <folder>           the \"My Documents\" folder, or equivalent (default: the user's)",
+			"  -s, --settings <file>         the settings.txt listing the active mods, may be given repeatedly",
+			"                                to check several profiles at once",
+			"                                (default: the game's one in the documents folder)",
+			"  -m, --min-severity <severity> the least severity of alerts to write, one of "
+					+ Arrays.toString(Severity.values()) + " (default: " + GlobalState.minimalAlertSeverity + ")",
+			"      --game <game>             the game to check, one of " + Arrays.toString(Game.values())
+					+ " (default: " + Game.values()[0].name() + ")",
+			"      --no-cache                parse all files, rather than reusing the results of previous runs",
+			"      --serve                   keep the mod list parsed and up to date, and answer requests on a",
+			"                                loopback socket until stopped, see the Daemon",
+			"      --connect                 request the alerts from a running daemon, rather than parsing the mods",
+			"  -p, --port <port>             the port of the daemon (default: " + Daemon.DEFAULT_PORT + ")",
+			"  -h, --help                    show this message",
+			"",
+			"Exit status: 0 if no alerts were written, 1 if any were, 2 on invalid arguments.");
+	
+	private Game game = Game.values()[0];
+	private Path gamePath;
+	private Path docsFolder;
+	private final List<Path> settingsFiles = new ArrayList<>();
+	private Severity minimalSeverity = GlobalState.minimalAlertSeverity;
+	private boolean useParseCache = true;
+	private boolean serve = false;
+	private boolean connect = false;
+	private int port = Daemon.DEFAULT_PORT;
+	
+	/**Checks the mod list described by the given arguments, see {@link Cli}, and exits with the resulting status.
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args){
+		Cli cli = new Cli();
+		int status;
+		try{
+			if(!cli.parseArguments(args)){
+				System.out.println(USAGE);
+				status = EXIT_OK;
+			}
+			else {
+				status = cli.run();
+			}
+		}catch(IllegalArgumentException e){
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			status = EXIT_USAGE;
+		}
+		System.exit(status);
+	}
+	
+	/**Reads the given command line arguments into the fields of this Cli.
+	 * @param args the command line arguments
+	 * @return false iff the usage was requested
+	 * @throws IllegalArgumentException iff any argument is invalid
+	 */
+	private boolean parseArguments(String[] args){
+		for(int i = 0; i < args.length; i++){
+			String arg = args[i];
+			switch(arg){
+				case "-h":
+				case "--help":
+					return false;
+				case "-g":
+				case "--game-path":
+					gamePath = Paths.get(valueOf(args, ++i, arg));
+					break;
+				case "-d":
+				case "--docs":
+					docsFolder = Paths.get(valueOf(args, ++i, arg));
+					break;
+				case "-s":
+				case "--settings":
+					settingsFiles.add(Paths.get(valueOf(args, ++i, arg)));
+					break;
+				case "-m":
+				case "--min-severity":
+					minimalSeverity = Severity.valueOf(valueOf(args, ++i, arg).toUpperCase(Locale.ROOT));
+					break;
+				case "--game":
+					game = Game.valueOf(valueOf(args, ++i, arg).toUpperCase(Locale.ROOT));
+					break;
+				case "--no-cache":
+					useParseCache = false;
+					break;
+				case "--serve":
+					serve = true;
+					break;
+				case "--connect":
+					connect = true;
+					break;
+				case "-p":
+				case "--port":
+					port = Integer.parseInt(valueOf(args, ++i, arg));
+					break;
+				default:
+					throw new IllegalArgumentException(String.format("Unknown argument: %s", arg));
+			}
+		}
+		if(serve && connect)
+			throw new IllegalArgumentException("--serve and --connect are mutually exclusive.");
+		if(serve && settingsFiles.size() > 1)
+			throw new IllegalArgumentException("The daemon serves a single settings file.");
+		return true;
+	}
+	
+	private static String valueOf(String[] args, int i, String option){
+		if(i >= args.length)
+			throw new IllegalArgumentException(String.format("Missing value of %s", option));
+		return args[i];
+	}
+	
+	/**Sets up the {@link GlobalState} as the {@link jay.aenigma.gui.Gui} would, then loads the {@link ModList} and
+	 * checks it for conflicts, writing each {@link Alert} of at least the minimal {@link Severity} as it is found.
+	 * Alternatively, serves the ModList or connects to a {@link Daemon} serving one.
+	 * @return the exit status
+	 * @throws IllegalArgumentException iff the game or documents folder cannot be determined, the Settings File
+	 * cannot be read, or no Daemon is running
+	 */
+	private int run(){
+		if(connect)
+			return connect();
+		setUp();
+		return serve ? serve() : check();
+	}
+	
+	private void setUp(){
+		GlobalState.game = game;
+		GlobalState.useParseCache = useParseCache;
+		if(gamePath == null){
+			FolderUtils.resetSteamRoot();
+			if(!GlobalState.isSteamFolderOk())
+				throw new IllegalArgumentException("Steam was not found, please give the game's install folder.");
+			FolderUtils.parseInstallRoot(game.getManifestFile(GlobalState.steamRoot));
+		}
+		else {
+			// as by the Gui, the install root is the parent of the game's folder
+			GlobalState.installRoot = gamePath.toAbsolutePath().getParent();
+		}
+		if(!GlobalState.isGameFolderOk())
+			System.err.println(String.format("Warning: File '%s' not found.",
+					game.getGameDataFolder(GlobalState.installRoot).resolve(game.getExecutable())));
+		
+		if(docsFolder != null)
+			GlobalState.docsFolder = docsFolder;
+		else if(settingsFiles.isEmpty())
+			FolderUtils.resetDocsFolder();
+		if(settingsFiles.isEmpty())
+			settingsFiles.add(game.getSettingsFile(GlobalState.docsFolder));
+		for(Path settings : settingsFiles){
+			if(!Files.isReadable(settings))
+				throw new IllegalArgumentException(String.format("Error: File '%s' does not exist.", settings));
+		}
+	}
+	
+	private int check(){
+		PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+		List<AlertWriter> writers = new ArrayList<>();
+		try(ModListBatch batch = new ModListBatch(settingsFiles)){
+			batch.runConflictChecks(settings -> {
+				AlertWriter writer = new AlertWriter(out, settingsFiles.size() > 1 ? settings.toString() : null);
+				synchronized(writers){
+					writers.add(writer);
+				}
+				return writer;
+			});
+			for(AlertWriter writer : writers){
+				writer.await();
+			}
+		}catch(IOException e){
+			throw new IllegalArgumentException(e.getLocalizedMessage(), e);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}finally{
+			out.flush();
+		}
+		return writers.stream().anyMatch(writer -> writer.getCount() > 0) ? EXIT_ALERTS : EXIT_OK;
+	}
+	
+	private int serve(){
+		try(Daemon daemon = new Daemon(settingsFiles.get(0), port, minimalSeverity)){
+			System.err.println(String.format("Listening on %s:%d.", InetAddress.getLoopbackAddress().getHostAddress(),
+					daemon.getPort()));
+			daemon.serve();
+		}catch(IOException e){
+			throw new IllegalArgumentException(e.getLocalizedMessage(), e);
+		}
+		return EXIT_OK;
+	}
+	
+	/**Requests the {@link Alert}s of at least the minimal {@link Severity} from the {@link Daemon} listening on the
+	 * port, and writes them as they are received.
+	 * @return the exit status
+	 * @throws IllegalArgumentException iff no Daemon is listening on the port
+	 */
+	private int connect(){
+		int count = 0;
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		    BufferedReader in = new BufferedReader(
+				    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		    PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), false, StandardCharsets.UTF_8)){
+			OutputStream request = socket.getOutputStream();
+			request.write(("check " + minimalSeverity.name() + "\n").getBytes(StandardCharsets.UTF_8));
+			request.flush();
+			String line;
+			while((line = in.readLine()) != null && !line.startsWith("{\"done\"")){
+				if(line.startsWith("{\"error\""))
+					throw new IllegalArgumentException(line);
+				out.println(line);
+				count++;
+			}
+		}catch(ConnectException e){
+			throw new IllegalArgumentException(String.format("No daemon is listening on port %d.", port), e);
+		}catch(IOException e){
+			throw new IllegalArgumentException(e.getLocalizedMessage(), e);
+		}
+		return count > 0 ? EXIT_ALERTS : EXIT_OK;
+	}
+	
+	/**
+	 * Writes each {@link Alert} of at least the minimal {@link Severity} that it receives as a line of JSON.
+	 */
+	private final class AlertWriter implements Flow.Subscriber<Alert>{
+		private final PrintStream out;
+		private final String profile;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final AtomicInteger count = new AtomicInteger();
+		
+		AlertWriter(PrintStream out, String profile){
+			this.out = out;
+			this.profile = profile;
+		}
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription){
+			subscription.request(Long.MAX_VALUE);
+		}
+		
+		@Override
+		public void onNext(Alert alert){
+			if(alert.getSeverity().compareTo(minimalSeverity) >= 0){
+				out.println(toJson(alert, profile != null ? "profile" : null, profile));
+				count.incrementAndGet();
+			}
+		}
+		
+		@Override
+		public void onError(Throwable throwable){
+			// logged by the ModList, which returns the alerts found until then
+			done.countDown();
+		}
+		
+		@Override
+		public void onComplete(){
+			done.countDown();
+		}
+		
+		/**Waits until all {@link Alert}s were written.
+		 * @throws InterruptedException iff interrupted while waiting
+		 */
+		void await() throws InterruptedException{
+			done.await();
+		}
+		
+		int getCount(){
+			return count.get();
+		}
+	}
+	
+	/**Generates the single-line JSON representation of the given {@link Alert}.
+	 * @param alert the Alert
+	 * @param field the name of an additional field to start with, such as "profile", or null for none
+	 * @param value the value of the additional field
+	 * @return the JSON object, without a line break
+	 */
+	static String toJson(Alert alert, String field, String value){
+		StringBuilder json = new StringBuilder(256);
+		json.append('{');
+		if(field != null){
+			appendString(json, field);
+			json.append(':');
+			appendString(json, value);
+			json.append(',');
+		}
+		json.append("\"severity\":");
+		appendString(json, alert.getSeverity().name());
+		json.append(",\"kind\":");
+		appendString(json, alert.getKind().name());
+		json.append(",\"folder\":");
+		appendString(json, alert.getGameFolder() != null ? alert.getGameFolder().toString() : null);
+		json.append(",\"definition\":");
+		appendString(json, alert.getDefinitionName());
+		json.append(",\"message\":");
+		appendString(json, alert.getMessage());
+		json.append(",\"files\":[");
+		boolean first = true;
+		for(Mod.ModFile file : alert.getFiles()){
+			if(!first)
+				json.append(',');
+			first = false;
+			json.append("{\"mod\":");
+			appendString(json, file.getMod().getName());
+			json.append(",\"path\":");
+			appendString(json, file.getName());
+			json.append('}');
+		}
+		json.append("]}");
+		return json.toString();
+	}
+	
+	/**Appends the given {@link String} to the given JSON, as a quoted and escaped string.
+	 * @param json the JSON to append to
+	 * @param string the String, or null
+	 */
+	static void appendString(StringBuilder json, String string){
+		if(string == null){
+			json.append("null");
+			return;
+		}
+		json.append('"');
+		for(int i = 0; i < string.length(); i++){
+			char c = string.charAt(i);
+			switch(c){
+				case '"':
+					json.append("\\\"");
+					break;
+				case '\\':
+					json.append("\\\\");
+					break;
+				case '\n':
+					json.append("\\n");
+					break;
+				case '\r':
+					json.append("\\r");
+					break;
+				case '\t':
+					json.append("\\t");
+					break;
+				default:
+					if(c < 0x20)
+						json.append(String.format("\\u%04x", (int) c));
+					else
+						json.append(c);
+			}
+		}
+		json.append('"');
+	}
+}
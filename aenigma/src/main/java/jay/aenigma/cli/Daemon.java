@@ -0,0 +1,283 @@
+package jay.aenigma.cli;
+
+import jay.aenigma.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+
+/**
+ * Long-running server, which keeps the {@link ModList} of a Settings File parsed, and up to date by a
+ * {@link ModListWatcher}, and answers requests about it over a loopback socket, so that clients such as the
+ * {@link Cli} get answers without parsing any mods themselves. <br/>
+ * Each request is a single line of text, and each response consists of lines of JSON (NDJSON), the last of which is
+ * either {"done":true,"count":n} or {"error":"..."}. The requests are:
+ * <pre>
+ * check [severity]        all current Alerts of at least the given severity, see Cli
+ * diff [severity]         the Alerts added or removed since the last check or diff on the same connection,
+ *                         each with the additional field "change", either "added" or "removed"
+ * lookup &lt;folder&gt; &lt;name&gt;  all Definitions of the given name in the given GameFolder,
+ *                         e.g. "lookup TRAITS brave":
+ *                         {"mod":"...","path":"...","folder":"TRAITS","definition":"brave","shadowed":false}
+ * stop &lt;token&gt;            stops the Daemon, given the token in the Token File
+ * </pre>
+ * The socket is only bound to the loopback address. Since any local process may connect to it, e.g. a browser posting
+ * to it, the connection is closed on the first unknown request, and stopping requires the random token that the Daemon
+ * writes to the {@link #TOKEN_FILE} in the user data folder, so only processes that may read that folder can stop it.
+ */
+final class Daemon implements Closeable{
+	
+	static final int DEFAULT_PORT = 47913;
+	/**Name of the Token File in the user data folder, which holds the token of a stop request while a Daemon runs*/
+	static final String TOKEN_FILE = "aenigma-daemon.token";
+	
+	private final ModListWatcher watcher;
+	private final ServerSocket serverSocket;
+	private final Severity minimalSeverity;
+	private final Path tokenFile;
+	private final byte[] token;
+	private boolean closed = false;
+	// the connection that requested the stop, which serve() waits for so that its answer is sent
+	private Thread stoppingConnection;
+	
+	/**Loads the {@link ModList} of the given Settings File, checks it for conflicts and starts watching it, then
+	 * binds the socket on the loopback address and writes the {@link #TOKEN_FILE} next to the Settings File.
+	 * @param settingsFile Path to the Settings File
+	 * @param port the port to listen on, or 0 for any free one
+	 * @param minimalSeverity the least severity of the Alerts to answer with, unless a request gives another
+	 * @throws IOException iff loading the ModList, watching it, binding the socket or writing the Token File fails
+	 */
+	Daemon(Path settingsFile, int port, Severity minimalSeverity) throws IOException{
+		this.minimalSeverity = minimalSeverity;
+		settingsFile = settingsFile.toAbsolutePath();
+		ModList modList = new ModList(settingsFile);
+		long time = System.nanoTime();
+		int alerts = modList.runConflictCheck().size();
+		time = (System.nanoTime() - time) / 1_000_000;
+		System.err.println(String.format("Checked %s: %d alerts (%d ms).", settingsFile, alerts, time));
+		try{
+			watcher = ModListWatcher.watch(settingsFile, modList, new ModListWatcher.Listener(){
+				@Override
+				public void onUpdate(ModList modList, AlertDelta delta){
+					System.err.println(String.format("Updated: %d alerts added, %d removed.",
+							delta.getAdded().size(), delta.getRemoved().size()));
+				}
+				
+				@Override
+				public void onReload(ModList modList, List<Alert> alerts){
+					System.err.println(String.format("Reloaded the mod list: %d alerts.", alerts.size()));
+				}
+			});
+		}catch(IOException e){
+			modList.close();
+			throw e;
+		}
+		try{
+			serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		}catch(IOException e){
+			watcher.close();
+			watcher.getModList().close();
+			throw e;
+		}
+		byte[] random = new byte[24];
+		new SecureRandom().nextBytes(random);
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+		this.token = token.getBytes(StandardCharsets.UTF_8);
+		tokenFile = settingsFile.resolveSibling(TOKEN_FILE);
+		try{
+			Files.write(tokenFile, this.token);
+		}catch(IOException e){
+			serverSocket.close();
+			watcher.close();
+			watcher.getModList().close();
+			throw e;
+		}
+	}
+	
+	/**Retrieves the port that this Daemon listens on.
+	 * @return the port
+	 */
+	int getPort(){
+		return serverSocket.getLocalPort();
+	}
+	
+	/**Accepts connections until this Daemon is closed, e.g. by a stop request, and answers the requests of each one
+	 * on a thread of its own. If stopped by a request, only returns once the answer to it was sent.
+	 */
+	void serve(){
+		try{
+			while(true){
+				Socket socket = serverSocket.accept();
+				Thread thread = new Thread(() -> handle(socket), "Daemon connection");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}catch(IOException e){
+			if(!serverSocket.isClosed())
+				e.printStackTrace();
+		}
+		Thread connection;
+		synchronized(this){
+			connection = stoppingConnection;
+		}
+		if(connection != null){
+			try{
+				connection.join();
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	private void handle(Socket socket){
+		// the Alerts last answered with, by their JSON representation, see diff
+		Map<String, Alert> previous = new LinkedHashMap<>();
+		try(socket;
+		    BufferedReader in = new BufferedReader(
+				    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		    PrintWriter out = new PrintWriter(new BufferedWriter(
+				    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))){
+			String request;
+			while((request = in.readLine()) != null){
+				String[] words = request.trim().split("\\s+", 3);
+				try{
+					switch(words[0]){
+						case "check":
+							check(out, severityOf(words), previous);
+							break;
+						case "diff":
+							diff(out, severityOf(words), previous);
+							break;
+						case "lookup":
+							if(words.length < 3)
+								throw new IllegalArgumentException("Usage: lookup <folder> <name>");
+							lookup(out, words[1], words[2]);
+							break;
+						case "stop":
+							if(words.length < 2 || !MessageDigest.isEqual(
+									token, words[1].getBytes(StandardCharsets.UTF_8))){
+								error(out, String.format("Usage: stop <token>, with the token in %s", TOKEN_FILE));
+								return;
+							}
+							done(out, 0);
+							out.flush();
+							synchronized(this){
+								stoppingConnection = Thread.currentThread();
+							}
+							close();
+							return;
+						default:
+							// likely not a client of the Daemon at all, so do not read any further
+							error(out, String.format("Unknown request: %s", words[0]));
+							return;
+					}
+				}catch(IllegalArgumentException e){
+					error(out, e.getMessage());
+				}
+				out.flush();
+			}
+		}catch(SocketException e){
+			// closed by the client
+		}catch(IOException e){
+			e.printStackTrace();
+		}
+	}
+	
+	private Severity severityOf(String[] words){
+		return words.length > 1 ? Severity.valueOf(words[1].toUpperCase(Locale.ROOT)) : minimalSeverity;
+	}
+	
+	private void check(PrintWriter out, Severity minimalSeverity, Map<String, Alert> previous){
+		previous.clear();
+		for(Alert alert : watcher.getModList().getAlerts()){
+			if(alert.getSeverity().compareTo(minimalSeverity) >= 0)
+				previous.put(Cli.toJson(alert, null, null), alert);
+		}
+		for(String json : previous.keySet()){
+			out.println(json);
+		}
+		done(out, previous.size());
+	}
+	
+	/**Answers with the {@link Alert}s that were added or removed since the last check or diff. Alerts are compared
+	 * by their JSON representation, since a reloaded {@link ModList} recreates all of them.
+	 */
+	private void diff(PrintWriter out, Severity minimalSeverity, Map<String, Alert> previous){
+		Map<String, Alert> current = new LinkedHashMap<>();
+		for(Alert alert : watcher.getModList().getAlerts()){
+			if(alert.getSeverity().compareTo(minimalSeverity) >= 0)
+				current.put(Cli.toJson(alert, null, null), alert);
+		}
+		int count = 0;
+		for(Map.Entry<String, Alert> entry : previous.entrySet()){
+			if(!current.containsKey(entry.getKey())){
+				out.println(Cli.toJson(entry.getValue(), "change", "removed"));
+				count++;
+			}
+		}
+		for(Map.Entry<String, Alert> entry : current.entrySet()){
+			if(!previous.containsKey(entry.getKey())){
+				out.println(Cli.toJson(entry.getValue(), "change", "added"));
+				count++;
+			}
+		}
+		previous.clear();
+		previous.putAll(current);
+		done(out, count);
+	}
+	
+	private void lookup(PrintWriter out, String folder, String name){
+		GameFolder gameFolder = Arrays.stream(GlobalState.game.getGameFolders())
+				.filter(candidate -> candidate.toString().equalsIgnoreCase(folder))
+				.findFirst()
+				.orElseThrow(() -> new IllegalArgumentException(String.format("Unknown folder: %s", folder)));
+		ModList modList = watcher.getModList();
+		List<Definition> definitions = modList.getDefinitions(gameFolder, name);
+		for(Definition definition : definitions){
+			StringBuilder json = new StringBuilder(128);
+			json.append("{\"mod\":");
+			Cli.appendString(json, definition.getMod().getName());
+			json.append(",\"path\":");
+			Cli.appendString(json, definition.getFile().getName());
+			json.append(",\"folder\":");
+			Cli.appendString(json, gameFolder.toString());
+			json.append(",\"definition\":");
+			Cli.appendString(json, definition.getName());
+			json.append(",\"shadowed\":").append(modList.isShadowed(definition));
+			out.println(json.append('}'));
+		}
+		done(out, definitions.size());
+	}
+	
+	private static void done(PrintWriter out, int count){
+		out.println("{\"done\":true,\"count\":" + count + "}");
+	}
+	
+	private static void error(PrintWriter out, String message){
+		StringBuilder json = new StringBuilder("{\"error\":");
+		Cli.appendString(json, message);
+		out.println(json.append('}'));
+	}
+	
+	/**Stops accepting connections and watching the {@link ModList}, closes it and deletes the {@link #TOKEN_FILE}.
+	 * @throws IOException iff closing the socket or the ModList, or deleting the Token File fails
+	 */
+	@Override
+	public synchronized void close() throws IOException{
+		if(closed)
+			return;
+		closed = true;
+		serverSocket.close();
+		watcher.close();
+		watcher.getModList().close();
+		Files.deleteIfExists(tokenFile);
+	}
+}
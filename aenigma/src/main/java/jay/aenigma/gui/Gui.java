@@ -1,5 +1,8 @@
 package jay.aenigma.gui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
@@ -14,15 +17,17 @@ import javafx.stage.DirectoryChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import javafx.util.Duration;
 
 import jay.aenigma.*;
 import jay.aenigma.Alert;
 import jay.aenigma.ckii.TreeNode;
 
-import org.antlr.v4.runtime.CharStreams;
+import jay.aenigma.ckii.parser.ByteCharStream;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -40,6 +45,9 @@ public class Gui extends Application{
 	private static final String INSERT = "INSERT";
 	private static final String MODIFY = "MODIFY";
 	private static final String DELETE = "DELETE";
+	// alerts found during a conflict check are shown in batches of at most this many, this often
+	private static final int ALERT_BATCH_SIZE = 500;
+	private static final double ALERT_BATCH_MILLIS = 200;
 	
 	private TextArea debugArea = new TextArea();
 	private ChoiceBox<Game> gameChoiceBox;
@@ -51,6 +59,8 @@ public class Gui extends Application{
 	private TableView<Mod> modTableView;
 	private TableView<Alert> alertTableView;
 	private Button checkConflictsButton;
+	private CheckBox watchCheckBox;
+	private ModListWatcher watcher;
 	private Stage primaryStage;
 	
 	@Override
@@ -74,6 +84,16 @@ public class Gui extends Application{
 		checkConflictsButton.setOnAction(event -> runConflictCheck());
 		checkConflictsButton.setDisable(true);
 		
+		watchCheckBox = new CheckBox("Watch for changes.");
+		watchCheckBox.setOnAction(event -> {
+			if(watchCheckBox.isSelected() && GlobalState.mods != null){
+				runConflictCheck();
+			}
+			else {
+				stopWatching();
+			}
+		});
+		
 		/// define the mod list table (populated later)
 		
 		modTableView = new TableView<>();
@@ -118,7 +138,7 @@ public class Gui extends Application{
 			onUpdateGamePath(GlobalState.game.getGameDataFolder(GlobalState.installRoot));
 		
 		
-		HBox conflictsHeaderPane = new HBox(8, new Label("Conflicts"), checkConflictsButton);
+		HBox conflictsHeaderPane = new HBox(8, new Label("Conflicts"), checkConflictsButton, watchCheckBox);
 		
 		/// Debug area
 		debugArea.setEditable(false);
@@ -203,8 +223,7 @@ public class Gui extends Application{
 			// a row has the cols { Status, content } x #modfiles
 			final Mod.ModFile masterFile = modFiles.get(0);
 			GlobalState.log(String.format("Parsing file '%s' in '%s'.", masterFile.getName(), masterFile.getMod().getName()));
-			final String master = String.join("\r\n", Files.readAllLines(masterFile.getAbsolutePath(),
-					masterFile.getGameFolder().getCharset()));
+			final ByteBuffer master = FolderUtils.readFile(masterFile.getAbsolutePath());
 			
 			final List<Deque<String>> masterStringDeques = new ArrayList<>(n-1);
 			final List<Deque<String>> subStringDeques = new ArrayList<>(n-1);
@@ -217,9 +236,10 @@ public class Gui extends Application{
 							try{
 								Mod.ModFile subFile = modFiles.get(i);
 								GlobalState.log(String.format("Parsing file '%s' in '%s'.", subFile.getName(), subFile.getMod().getName()));
-								TreeNode subNode = TreeNode.valueOf(CharStreams.fromPath(subFile.getAbsolutePath(),
-										subFile.getGameFolder().getCharset()));
-								TreeNode masterNode = TreeNode.valueOf(master);
+								TreeNode subNode = TreeNode.valueOf(FolderUtils.readCharStream(
+										subFile.getAbsolutePath(), subFile.getGameFolder().getCharset()));
+								TreeNode masterNode = TreeNode.valueOf(ByteCharStream.of(master,
+										masterFile.getGameFolder().getCharset(), masterFile.getName()));
 								
 								if(definitionName != null){
 									String subIdField = subFile.getGameFolder().getIdField();
@@ -409,7 +429,7 @@ public class Gui extends Application{
 		try{
 			final Future<List<String>> listFuture = GlobalState.backgroundExecutor.submit(() -> {
 					GlobalState.log(String.format("Parsing file '%s' in '%s'.", modFile.getName(), modFile.getMod().getName()));
-					TreeNode node = TreeNode.valueOf(CharStreams.fromPath(modFile.getAbsolutePath(),
+					TreeNode node = TreeNode.valueOf(FolderUtils.readCharStream(modFile.getAbsolutePath(),
 							modFile.getGameFolder().getCharset()));
 					
 					String idField = modFile.getGameFolder().getIdField();
@@ -574,6 +594,8 @@ public class Gui extends Application{
 	
 	private void updateModList(){
 		if(GlobalState.isDocsFolderOk() && GlobalState.isGameFolderOk() && modTableView != null){
+			stopWatching();
+			watchCheckBox.setSelected(false);
 			try{
 				modTableView.getItems().clear();
 				if(GlobalState.mods != null) GlobalState.mods.close();
@@ -612,23 +634,143 @@ public class Gui extends Application{
 	private void runConflictCheck(){
 		Stage progressStage = makeProgressStage(primaryStage);
 		progressStage.show();
+		AlertFeed alertFeed = new AlertFeed();
+		alertFeed.start();
 		
 		GlobalState.backgroundExecutor.submit(() -> {
-			GlobalState.alerts.clear();
-			List<Alert> alertList = GlobalState.mods.runConflictCheck();
-			GlobalState.alerts.addAll(alertList);
+			List<Alert> alertList = GlobalState.mods.runConflictCheck(alertFeed);
 			Platform.runLater(() -> {
-				alertTableView.getItems().setAll(
-						GlobalState.alerts.stream()
-								.filter(alert -> alert.getSeverity().compareTo(GlobalState.minimalAlertSeverity) >= 0)
-								.collect(Collectors.toList())
-				);
-				
+				// replaces the alerts shown so far, in the order of the complete list
+				alertFeed.stop();
+				showAlerts(alertList);
 				progressStage.close();
+				if(watchCheckBox.isSelected()){
+					startWatching();
+				}
 			});
 		});
 	}
 	
+	private void showAlerts(List<Alert> alertList){
+		GlobalState.alerts.clear();
+		GlobalState.alerts.addAll(alertList);
+		alertTableView.getItems().setAll(
+				GlobalState.alerts.stream()
+						.filter(alert -> alert.getSeverity().compareTo(GlobalState.minimalAlertSeverity) >= 0)
+						.collect(Collectors.toList())
+		);
+	}
+	
+	/**
+	 * Receives the alerts of a conflict check as they are found, and adds them to the alert table in batches,
+	 * so that the FX thread is not flooded with one update per alert.
+	 */
+	private class AlertFeed implements Flow.Subscriber<Alert>{
+		private final Queue<Alert> pending = new ConcurrentLinkedQueue<>();
+		private final Timeline timeline = new Timeline(
+				new KeyFrame(Duration.millis(ALERT_BATCH_MILLIS), event -> showPending()));
+		
+		AlertFeed(){
+			timeline.setCycleCount(Animation.INDEFINITE);
+		}
+		
+		void start(){
+			GlobalState.alerts.clear();
+			alertTableView.getItems().clear();
+			timeline.play();
+		}
+		
+		void stop(){
+			timeline.stop();
+			pending.clear();
+		}
+		
+		private void showPending(){
+			List<Alert> batch = new ArrayList<>();
+			Alert alert;
+			while(batch.size() < ALERT_BATCH_SIZE && (alert = pending.poll()) != null){
+				batch.add(alert);
+			}
+			GlobalState.alerts.addAll(batch);
+			alertTableView.getItems().addAll(
+					batch.stream()
+							.filter(a -> a.getSeverity().compareTo(GlobalState.minimalAlertSeverity) >= 0)
+							.collect(Collectors.toList())
+			);
+		}
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription){
+			subscription.request(Long.MAX_VALUE);
+		}
+		
+		@Override
+		public void onNext(Alert item){
+			pending.add(item);
+		}
+		
+		@Override
+		public void onError(Throwable throwable){
+			// logged by the ModList, which returns the alerts found until then
+		}
+		
+		@Override
+		public void onComplete(){
+		}
+	}
+	
+	private void showAlerts(AlertDelta delta){
+		// the removed alerts are the very instances shown before, but may be equal to added ones
+		Set<Alert> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+		removed.addAll(delta.getRemoved());
+		GlobalState.alerts.removeIf(removed::contains);
+		alertTableView.getItems().removeIf(removed::contains);
+		GlobalState.alerts.addAll(delta.getAdded());
+		alertTableView.getItems().addAll(
+				delta.getAdded().stream()
+						.filter(alert -> alert.getSeverity().compareTo(GlobalState.minimalAlertSeverity) >= 0)
+						.collect(Collectors.toList())
+		);
+	}
+	
+	private void startWatching(){
+		stopWatching();
+		try{
+			watcher = ModListWatcher.watch(GlobalState.game.getSettingsFile(GlobalState.docsFolder), GlobalState.mods,
+					new ModListWatcher.Listener(){
+						@Override
+						public void onUpdate(ModList modList, AlertDelta delta){
+							Platform.runLater(() -> showAlerts(delta));
+						}
+						
+						@Override
+						public void onReload(ModList modList, List<Alert> alerts){
+							Platform.runLater(() -> {
+								GlobalState.mods = modList;
+								modTableView.getItems().setAll(modList.getValues());
+								showAlerts(alerts);
+							});
+						}
+					});
+			GlobalState.log("Watching for changes...");
+		} catch(IOException e){
+			GlobalState.log(e.getLocalizedMessage());
+			e.printStackTrace();
+			watchCheckBox.setSelected(false);
+		}
+	}
+	
+	private void stopWatching(){
+		if(watcher != null){
+			try{
+				watcher.close();
+			} catch(IOException e){
+				e.printStackTrace();
+			}
+			watcher = null;
+		}
+	}
+	
 	private TableView<Alert> makeAlertTableView(){
 		TableView<Alert> tableView = new TableView<>();
 		tableView.setRowFactory(param -> {
@@ -670,6 +812,7 @@ public class Gui extends Application{
 	@Override
 	public void stop() throws Exception{
 		super.stop();
+		stopWatching();
 		GlobalState.backgroundExecutor.shutdownNow();
 		if(GlobalState.mods != null)
 			GlobalState.mods.close();